@@ -0,0 +1,137 @@
+package crumble.bench;
+
+import crumble.Expr;
+import crumble.interpreter.RuntimeError;
+import crumble.parser.IterativeParser;
+import crumble.scanner.Scanner;
+import crumble.vm.Chunk;
+import crumble.vm.ChunkCache;
+import crumble.vm.Compiler;
+import crumble.vm.VM;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Check of {@link ChunkCache} against damaged entries: each source is compiled and
+ * stored, and the entry must load back to chunks that run to the same values. Then
+ * every truncation of the entry, and every copy of it with a single bit flipped, must
+ * load as a miss. Run it after building the jmh profile:
+ * <pre>
+ * java -cp target/benchmarks.jar crumble.bench.ChunkCacheCheck
+ * </pre>
+ * Exits with status 1 if a damaged entry is returned or loading one throws.
+ */
+public class ChunkCacheCheck {
+    private static final String[] SOURCES = {
+            "1",
+            "\"a\" + \"b\" == \"ab\";\n-x * (y + 2.5);\nnull == false",
+            "1 +\n2 *\n-x;\n!(\"\" < \"é\")",
+            "(((1 + 2) * (3 - 4)) / ((5 + 6) * (7 - 8))) + x",
+    };
+
+    private static final Map<String, Object> GLOBALS = Map.of("x", 1.5, "y", 2.0);
+
+    private static final VM vm = new VM();
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("crumble-cache-check");
+        int damaged = 0;
+        try {
+            ChunkCache cache = new ChunkCache(directory);
+            for (String source : SOURCES) {
+                damaged += check(cache, directory, source);
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+
+        System.out.println(damaged + " damaged entries checked, " + failures + " failures");
+        if (failures > 0) System.exit(1);
+    }
+
+    /**
+     * @return how many damaged copies of the source's entry were tried.
+     */
+    private static int check(ChunkCache cache, Path directory, String source) throws IOException {
+        List<Expr> expressions =
+                new IterativeParser(new Scanner(source).scanTokenStream()).parseAll().getExpressions();
+        List<Chunk> chunks = new ArrayList<>();
+        for (Expr expression : expressions) {
+            chunks.add(new Compiler().compile(expression));
+        }
+
+        String key = cache.key(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        cache.store(key, chunks);
+        Path entry;
+        try (Stream<Path> files = Files.list(directory)) {
+            entry = files.filter(file -> file.getFileName().toString().startsWith(key))
+                    .findFirst().orElseThrow(() -> new IllegalStateException("No entry stored for " + key));
+        }
+        byte[] bytes = Files.readAllBytes(entry);
+
+        List<Chunk> loaded = cache.load(key);
+        if (loaded == null || !results(loaded).equals(results(chunks))) {
+            fail(source, "intact entry", loaded == null ? "missed" : "loaded different chunks");
+        }
+
+        int damaged = 0;
+        for (int length = 0; length < bytes.length; length++) {
+            expectMiss(cache, key, entry, Arrays.copyOf(bytes, length), source, "truncated to " + length);
+            damaged++;
+        }
+        for (int bit = 0; bit < bytes.length * 8; bit++) {
+            byte[] flipped = bytes.clone();
+            flipped[bit / 8] ^= (byte) (1 << (bit % 8));
+            expectMiss(cache, key, entry, flipped, source, "bit " + bit + " flipped");
+            damaged++;
+        }
+        Files.delete(entry);
+        return damaged;
+    }
+
+    private static void expectMiss(ChunkCache cache, String key, Path entry, byte[] bytes, String source,
+                                   String damage) throws IOException {
+        Files.write(entry, bytes);
+        try {
+            if (cache.load(key) != null) fail(source, damage, "loaded");
+        } catch (RuntimeException e) {
+            fail(source, damage, "threw " + e);
+        }
+    }
+
+    /**
+     * @return what each chunk evaluates to, or the runtime error it fails with.
+     */
+    private static List<String> results(List<Chunk> chunks) {
+        List<String> results = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            try {
+                results.add(String.valueOf(vm.run(chunk, GLOBALS)));
+            } catch (RuntimeError error) {
+                results.add("error [line " + error.getLine() + "] " + error.getMessage());
+            }
+        }
+        return results;
+    }
+
+    private static void fail(String source, String damage, String outcome) {
+        failures++;
+        if (failures <= 10) {
+            System.out.println("Entry of " + source.replace("\n", "\\n") + ", " + damage + ": " + outcome);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package crumble.bench;
+
+import java.util.Random;
+
+/**
+ * Synthetic Crumble sources for the benchmarks.
+ *
+ * Each corpus is a single expression built as a balanced tree of parenthesized binary
+ * operations, so nesting depth grows with the logarithm of the size and even the
+ * multi-megabyte corpus stays within the recursive parser's and printer's stack.
+ * Generation is seeded, so every run benchmarks the same text.
+ */
+public enum Corpus {
+    SMALL(1 << 10),
+    MEDIUM(64 << 10),
+    LARGE(4 << 20);
+
+    private static final String[] OPERATORS = {
+            "+", "-", "*", "/", "==", "!=", "<", "<=", ">", ">="
+    };
+
+    private final int targetSize;
+    private String source;
+
+    Corpus(int targetSize) {
+        this.targetSize = targetSize;
+    }
+
+    /**
+     * @return the source text, generated on first use.
+     */
+    public synchronized String source() {
+        if (source == null) {
+            StringBuilder sb = new StringBuilder(targetSize + 64);
+            expression(sb, new Random(targetSize), targetSize);
+            source = sb.toString();
+        }
+        return source;
+    }
+
+    private static void expression(StringBuilder sb, Random random, int budget) {
+        if (budget < 24) {
+            literal(sb, random);
+            return;
+        }
+
+        boolean unary = random.nextInt(8) == 0;
+        if (unary) sb.append(random.nextBoolean() ? "-" : "!");
+        sb.append('(');
+        expression(sb, random, budget / 2 - 4);
+        sb.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+        expression(sb, random, budget / 2 - 4);
+        sb.append(')');
+        if (random.nextInt(16) == 0) sb.append('\n');
+    }
+
+    private static void literal(StringBuilder sb, Random random) {
+        switch (random.nextInt(8)) {
+            case 0:
+                sb.append('"').append("str").append(random.nextInt(1000)).append('"');
+                break;
+            case 1:
+                sb.append(random.nextBoolean() ? "true" : "false");
+                break;
+            case 2:
+                sb.append("null");
+                break;
+            case 3:
+                sb.append(random.nextInt(1000)).append('.').append(random.nextInt(100));
+                break;
+            default:
+                sb.append(random.nextInt(100_000));
+        }
+    }
+}
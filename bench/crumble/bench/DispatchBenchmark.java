@@ -0,0 +1,420 @@
+package crumble.bench;
+
+import crumble.Expr;
+import crumble.parser.Parser;
+import crumble.scanner.Scanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of walking a tree through the generated abstract-class AST ({@link Expr} and its
+ * Visitor) versus the sealed-record AST from {@code GenerateAST --sealed}, both through
+ * its dispatch helper and with instanceof patterns written inline.
+ *
+ * "render" writes every node, as ASTPrettyPrinter does but in linear time, into a
+ * reused buffer; "count" does almost nothing per node, so dispatch dominates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public Corpus corpus;
+
+    private Expr tree;
+    private crumble.sealed.Expr sealedTree;
+    private final StringBuilder out = new StringBuilder();
+
+    @Setup
+    public void setup() {
+        tree = new Parser(new Scanner(corpus.source()).scanTokenStream()).parse();
+        sealedTree = toSealed(tree);
+    }
+
+    @Benchmark
+    public int renderClassVisitor() {
+        out.setLength(0);
+        tree.accept(new ClassRenderer(out));
+        return out.length();
+    }
+
+    @Benchmark
+    public int renderSealedDispatch() {
+        out.setLength(0);
+        crumble.sealed.Expr.dispatch(sealedTree, new SealedRenderer(out));
+        return out.length();
+    }
+
+    @Benchmark
+    public int renderSealedPatterns() {
+        out.setLength(0);
+        render(sealedTree, out);
+        return out.length();
+    }
+
+    @Benchmark
+    public int countClassVisitor() {
+        return tree.accept(ClassCounter.INSTANCE);
+    }
+
+    @Benchmark
+    public int countSealedDispatch() {
+        return crumble.sealed.Expr.dispatch(sealedTree, SealedCounter.INSTANCE);
+    }
+
+    @Benchmark
+    public int countSealedPatterns() {
+        return count(sealedTree);
+    }
+
+    // ===================
+    // Abstract class + Visitor
+    // ===================
+
+    private static final class ClassRenderer implements Expr.Visitor<Void> {
+        private final StringBuilder out;
+
+        ClassRenderer(StringBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public Void visitBinaryExpr(Expr.Binary expr) {
+            out.append("(").append(expr.operator.getText()).append(' ');
+            expr.left.accept(this);
+            out.append(' ');
+            expr.right.accept(this);
+            out.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Expr.Grouping expr) {
+            out.append("(group ");
+            expr.expression.accept(this);
+            out.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+            out.append(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitBooleanLiteralExpr(Expr.BooleanLiteral expr) {
+            out.append(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitStringLiteralExpr(Expr.StringLiteral expr) {
+            out.append(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitNullLiteralExpr(Expr.NullLiteral expr) {
+            out.append("null");
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Expr.Unary expr) {
+            out.append("(").append(expr.operator.getText()).append(' ');
+            expr.right.accept(this);
+            out.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(Expr.Variable expr) {
+            out.append(expr.name);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpr(Expr.Assign expr) {
+            out.append("(= ").append(expr.name).append(' ');
+            expr.value.accept(this);
+            out.append(')');
+            return null;
+        }
+    }
+
+    private enum ClassCounter implements Expr.Visitor<Integer> {
+        INSTANCE;
+
+        @Override
+        public Integer visitBinaryExpr(Expr.Binary expr) {
+            return 1 + expr.left.accept(this) + expr.right.accept(this);
+        }
+
+        @Override
+        public Integer visitGroupingExpr(Expr.Grouping expr) {
+            return 1 + expr.expression.accept(this);
+        }
+
+        @Override
+        public Integer visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitBooleanLiteralExpr(Expr.BooleanLiteral expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitStringLiteralExpr(Expr.StringLiteral expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitNullLiteralExpr(Expr.NullLiteral expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitUnaryExpr(Expr.Unary expr) {
+            return 1 + expr.right.accept(this);
+        }
+
+        @Override
+        public Integer visitVariableExpr(Expr.Variable expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitAssignExpr(Expr.Assign expr) {
+            return 1 + expr.value.accept(this);
+        }
+    }
+
+    // ===================
+    // Sealed records + dispatch helper
+    // ===================
+
+    private static final class SealedRenderer implements crumble.sealed.Expr.Visitor<Void> {
+        private final StringBuilder out;
+
+        SealedRenderer(StringBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public Void visitBinaryExpr(crumble.sealed.Expr.Binary expr) {
+            out.append("(").append(expr.operator().getText()).append(' ');
+            crumble.sealed.Expr.dispatch(expr.left(), this);
+            out.append(' ');
+            crumble.sealed.Expr.dispatch(expr.right(), this);
+            out.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(crumble.sealed.Expr.Grouping expr) {
+            out.append("(group ");
+            crumble.sealed.Expr.dispatch(expr.expression(), this);
+            out.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitNumberLiteralExpr(crumble.sealed.Expr.NumberLiteral expr) {
+            out.append(expr.value());
+            return null;
+        }
+
+        @Override
+        public Void visitBooleanLiteralExpr(crumble.sealed.Expr.BooleanLiteral expr) {
+            out.append(expr.value());
+            return null;
+        }
+
+        @Override
+        public Void visitStringLiteralExpr(crumble.sealed.Expr.StringLiteral expr) {
+            out.append(expr.value());
+            return null;
+        }
+
+        @Override
+        public Void visitNullLiteralExpr(crumble.sealed.Expr.NullLiteral expr) {
+            out.append("null");
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(crumble.sealed.Expr.Unary expr) {
+            out.append("(").append(expr.operator().getText()).append(' ');
+            crumble.sealed.Expr.dispatch(expr.right(), this);
+            out.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(crumble.sealed.Expr.Variable expr) {
+            out.append(expr.name());
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpr(crumble.sealed.Expr.Assign expr) {
+            out.append("(= ").append(expr.name()).append(' ');
+            crumble.sealed.Expr.dispatch(expr.value(), this);
+            out.append(')');
+            return null;
+        }
+    }
+
+    private enum SealedCounter implements crumble.sealed.Expr.Visitor<Integer> {
+        INSTANCE;
+
+        @Override
+        public Integer visitBinaryExpr(crumble.sealed.Expr.Binary expr) {
+            return 1 + crumble.sealed.Expr.dispatch(expr.left(), this)
+                    + crumble.sealed.Expr.dispatch(expr.right(), this);
+        }
+
+        @Override
+        public Integer visitGroupingExpr(crumble.sealed.Expr.Grouping expr) {
+            return 1 + crumble.sealed.Expr.dispatch(expr.expression(), this);
+        }
+
+        @Override
+        public Integer visitNumberLiteralExpr(crumble.sealed.Expr.NumberLiteral expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitBooleanLiteralExpr(crumble.sealed.Expr.BooleanLiteral expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitStringLiteralExpr(crumble.sealed.Expr.StringLiteral expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitNullLiteralExpr(crumble.sealed.Expr.NullLiteral expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitUnaryExpr(crumble.sealed.Expr.Unary expr) {
+            return 1 + crumble.sealed.Expr.dispatch(expr.right(), this);
+        }
+
+        @Override
+        public Integer visitVariableExpr(crumble.sealed.Expr.Variable expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitAssignExpr(crumble.sealed.Expr.Assign expr) {
+            return 1 + crumble.sealed.Expr.dispatch(expr.value(), this);
+        }
+    }
+
+    // ===================
+    // Sealed records + inline patterns
+    // ===================
+
+    private static void render(crumble.sealed.Expr expr, StringBuilder out) {
+        if (expr instanceof crumble.sealed.Expr.Binary binary) {
+            out.append("(").append(binary.operator().getText()).append(' ');
+            render(binary.left(), out);
+            out.append(' ');
+            render(binary.right(), out);
+            out.append(')');
+        } else if (expr instanceof crumble.sealed.Expr.Grouping grouping) {
+            out.append("(group ");
+            render(grouping.expression(), out);
+            out.append(')');
+        } else if (expr instanceof crumble.sealed.Expr.NumberLiteral number) {
+            out.append(number.value());
+        } else if (expr instanceof crumble.sealed.Expr.BooleanLiteral bool) {
+            out.append(bool.value());
+        } else if (expr instanceof crumble.sealed.Expr.StringLiteral string) {
+            out.append(string.value());
+        } else if (expr instanceof crumble.sealed.Expr.NullLiteral) {
+            out.append("null");
+        } else if (expr instanceof crumble.sealed.Expr.Unary unary) {
+            out.append("(").append(unary.operator().getText()).append(' ');
+            render(unary.right(), out);
+            out.append(')');
+        } else if (expr instanceof crumble.sealed.Expr.Variable variable) {
+            out.append(variable.name());
+        } else if (expr instanceof crumble.sealed.Expr.Assign assign) {
+            out.append("(= ").append(assign.name()).append(' ');
+            render(assign.value(), out);
+            out.append(')');
+        }
+    }
+
+    private static int count(crumble.sealed.Expr expr) {
+        if (expr instanceof crumble.sealed.Expr.Binary binary) {
+            return 1 + count(binary.left()) + count(binary.right());
+        } else if (expr instanceof crumble.sealed.Expr.Grouping grouping) {
+            return 1 + count(grouping.expression());
+        } else if (expr instanceof crumble.sealed.Expr.Unary unary) {
+            return 1 + count(unary.right());
+        } else if (expr instanceof crumble.sealed.Expr.Assign assign) {
+            return 1 + count(assign.value());
+        }
+        return 1;
+    }
+
+    /**
+     * Copies a tree into the sealed representation. The corpora are balanced, so plain
+     * recursion is fine here.
+     */
+    private static crumble.sealed.Expr toSealed(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            return new crumble.sealed.Expr.Binary(toSealed(binary.left), binary.operator, binary.position,
+                    toSealed(binary.right));
+        }
+        if (expr instanceof Expr.Grouping) {
+            return new crumble.sealed.Expr.Grouping(toSealed(((Expr.Grouping) expr).expression));
+        }
+        if (expr instanceof Expr.Unary) {
+            Expr.Unary unary = (Expr.Unary) expr;
+            return new crumble.sealed.Expr.Unary(unary.operator, unary.position, toSealed(unary.right));
+        }
+        if (expr instanceof Expr.NumberLiteral) {
+            return new crumble.sealed.Expr.NumberLiteral(((Expr.NumberLiteral) expr).value);
+        }
+        if (expr instanceof Expr.BooleanLiteral) {
+            return new crumble.sealed.Expr.BooleanLiteral(((Expr.BooleanLiteral) expr).value);
+        }
+        if (expr instanceof Expr.StringLiteral) {
+            return new crumble.sealed.Expr.StringLiteral(((Expr.StringLiteral) expr).value);
+        }
+        if (expr instanceof Expr.Variable) {
+            Expr.Variable variable = (Expr.Variable) expr;
+            return new crumble.sealed.Expr.Variable(variable.name, variable.position);
+        }
+        if (expr instanceof Expr.Assign) {
+            Expr.Assign assign = (Expr.Assign) expr;
+            return new crumble.sealed.Expr.Assign(assign.name, assign.position, toSealed(assign.value));
+        }
+        return new crumble.sealed.Expr.NullLiteral();
+    }
+}
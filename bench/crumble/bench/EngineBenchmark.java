@@ -0,0 +1,60 @@
+package crumble.bench;
+
+import crumble.engine.CompiledScript;
+import crumble.engine.CrumbleEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of evaluating a small rule, the kind an embedding server runs per request,
+ * through {@link CrumbleEngine}: compiled once and shared by every thread, looked up in
+ * the engine's script cache on each call, or compiled again on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EngineBenchmark {
+    private static final String RULE = "price * (1 - discount) + shipping > limit == eligible";
+
+    private final CrumbleEngine engine = new CrumbleEngine();
+    private final CrumbleEngine uncached = new CrumbleEngine(0, 0);
+    private final Map<String, Object> bindings = Map.of(
+            "price", 120.0, "discount", 0.15, "shipping", 4.99, "limit", 100, "eligible", true);
+    private CompiledScript script;
+
+    @Setup
+    public void setup() {
+        script = engine.compile(RULE);
+    }
+
+    @Benchmark
+    public Object evalCompiled() {
+        return script.eval(bindings);
+    }
+
+    @Benchmark
+    public Object evalCachedSource() {
+        return engine.eval(RULE, bindings);
+    }
+
+    @Benchmark
+    public Object compileAndEval() {
+        return uncached.eval(RULE, bindings);
+    }
+}
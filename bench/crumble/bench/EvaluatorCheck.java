@@ -0,0 +1,170 @@
+package crumble.bench;
+
+import crumble.Expr;
+import crumble.interpreter.Interpreter;
+import crumble.interpreter.RuntimeError;
+import crumble.optimizer.ConstantFolder;
+import crumble.parser.IterativeParser;
+import crumble.parser.ParseResult;
+import crumble.scanner.Scanner;
+import crumble.vm.Compiler;
+import crumble.vm.VM;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Differential check of the back ends: every expression is evaluated by the
+ * {@link Interpreter}, the reference, and compiled and run by the {@link VM}, each on the
+ * tree as parsed and on the tree after {@link ConstantFolder}. All four must produce the
+ * same value, or fail with the same message on the same line. Run it after building the
+ * jmh profile:
+ * <pre>
+ * java -cp target/benchmarks.jar crumble.bench.EvaluatorCheck [random sources]
+ * </pre>
+ * Exits with status 1 if any of them disagrees.
+ */
+public class EvaluatorCheck {
+    private static final String[] CASES = {
+            "1 + 2 * 3 - 4 / 5", "1 - 2 - 3", "8 / 4 / 2", "1 / 0", "-1 / 0", "0 / 0",
+            "-0", "0 * -1", "-0 + 0", "-0 - 0", "(0 / 0) == (0 / 0)", "x * 1", "1 * x",
+            "x / 1", "x - 0", "x + 0", "-z + 0", "-z - 0", "-z * 1", "!!b", "!!x", "!!n",
+            "-\"a\"", "!\"a\"", "\"a\" + \"b\"",
+            "\"a\" + 1", "1 + \"a\"", "1 < \"a\"", "\"a\" < \"b\"", "s + s", "s * 1", "y + 1",
+            "n == null", "n == nil", "null == false", "w", "w + 1", "1 +\n\n-\"a\"",
+            "\"a\" ==\n\"a\"", "-(-(-x))", "!(1 == 1) != !!true",
+    };
+
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "==", "!=", "<", "<=", ">", ">="};
+
+    private static final String[] OPERANDS = {
+            "0", "1", "2.5", "\"s\"", "\"\"", "true", "false", "null", "x", "y", "z", "s", "b", "n",
+    };
+
+    /** Values of the variables the sources read. The cases also read {@code w}, which is undefined. */
+    private static final Map<String, Object> GLOBALS = new HashMap<>();
+
+    static {
+        GLOBALS.put("x", 1.5);
+        GLOBALS.put("y", 2); // An Integer, which both back ends read as a double
+        GLOBALS.put("z", 0.0); // So -z is a -0 the folder cannot see
+        GLOBALS.put("s", "s");
+        GLOBALS.put("b", true);
+        GLOBALS.put("n", null);
+    }
+
+    private static final Interpreter interpreter = new Interpreter();
+    private static final VM vm = new VM();
+    private static final ConstantFolder folder = new ConstantFolder();
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        int randomSources = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int checked = 0;
+
+        for (String source : CASES) {
+            checked += check(source);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < randomSources; i++) {
+            checked += check(wellFormed(random));
+        }
+
+        System.out.println(checked + " expressions checked, " + failures + " mismatches");
+        if (failures > 0) System.exit(1);
+    }
+
+    /**
+     * @return how many expressions of the source were checked.
+     */
+    private static int check(String source) {
+        ParseResult result = new IterativeParser(new Scanner(source).scanTokenStream()).parseAll();
+        if (result.hasErrors()) {
+            failures++;
+            System.out.println("Does not parse: " + abbreviate(source));
+            return 0;
+        }
+
+        for (Expr expression : result.getExpressions()) {
+            String expected = outcome(() -> interpreter.evaluate(expression, GLOBALS));
+            compare(source, "VM", expected,
+                    outcome(() -> vm.run(new Compiler().compile(expression), GLOBALS)));
+
+            Expr folded = folder.fold(expression);
+            compare(source, "Interpreter, folded", expected,
+                    outcome(() -> interpreter.evaluate(folded, GLOBALS)));
+            compare(source, "VM, folded", expected,
+                    outcome(() -> vm.run(new Compiler().compile(folded), GLOBALS)));
+        }
+        return result.getExpressions().size();
+    }
+
+    /**
+     * Describes a value with its type, so 1 and "1" differ, and -0 and NaN are told apart
+     * as {@link Double#toString} writes them; or describes the runtime error.
+     */
+    private static String outcome(Supplier<Object> evaluation) {
+        try {
+            Object value = evaluation.get();
+            return value == null ? "null" : value.getClass().getSimpleName() + " " + value;
+        } catch (RuntimeError error) {
+            return "error [line " + error.getLine() + "] " + error.getMessage();
+        }
+    }
+
+    private static void compare(String source, String evaluator, String expected, String actual) {
+        if (expected.equals(actual)) return;
+        failures++;
+        if (failures <= 10) {
+            System.out.println(evaluator + " disagrees on: " + abbreviate(source));
+            System.out.println("  expected: " + expected);
+            System.out.println("  actual:   " + actual);
+        }
+    }
+
+    /**
+     * @return random expressions that parse, a few levels deep, some spread over lines.
+     */
+    private static String wellFormed(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int statements = 1 + random.nextInt(3);
+        for (int i = 0; i < statements; i++) {
+            if (i > 0) sb.append(random.nextBoolean() ? "; " : ";\n");
+            expression(sb, random, 6);
+        }
+        return sb.toString();
+    }
+
+    private static void expression(StringBuilder sb, Random random, int depth) {
+        int choice = depth == 0 ? 0 : random.nextInt(6);
+        switch (choice) {
+            case 0:
+            case 1:
+                sb.append(OPERANDS[random.nextInt(OPERANDS.length)]);
+                break;
+            case 2:
+                sb.append(random.nextBoolean() ? "-" : "!");
+                expression(sb, random, depth - 1);
+                break;
+            case 3:
+                sb.append('(');
+                expression(sb, random, depth - 1);
+                sb.append(')');
+                break;
+            default:
+                expression(sb, random, depth - 1);
+                sb.append(random.nextInt(4) == 0 ? "\n" : " ");
+                sb.append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+                expression(sb, random, depth - 1);
+        }
+    }
+
+    private static String abbreviate(String text) {
+        String line = text.replace("\n", "\\n");
+        return line.length() <= 200 ? line : line.substring(0, 200) + "...";
+    }
+}
@@ -0,0 +1,79 @@
+package crumble.bench;
+
+import crumble.Expr;
+import crumble.ExprArena;
+import crumble.parser.IterativeParser;
+import crumble.parser.Parser;
+import crumble.parser.PrattParser;
+import crumble.scanner.Scanner;
+import crumble.scanner.Token;
+import crumble.scanner.TokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of building a syntax tree from already-scanned tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public Corpus corpus;
+
+    private List<Token> tokenList;
+    private TokenStream tokenStream;
+
+    @Setup
+    public void setup() {
+        tokenList = new Scanner(corpus.source()).scanTokens();
+        tokenStream = new Scanner(corpus.source()).scanTokenStream();
+    }
+
+    @Benchmark
+    public Expr parseTokenList() {
+        return new Parser(tokenList).parse();
+    }
+
+    @Benchmark
+    public Expr parseTokenStream() {
+        return new Parser(tokenStream).parse();
+    }
+
+    @Benchmark
+    public Expr prattTokenStream() {
+        return new PrattParser(tokenStream).parse();
+    }
+
+    @Benchmark
+    public Expr iterativeTokenStream() {
+        return new IterativeParser(tokenStream).parse();
+    }
+
+    @Benchmark
+    public ExprArena iterativeArena() {
+        ExprArena arena = new ExprArena(tokenStream.size());
+        new IterativeParser(tokenStream).parseInto(arena);
+        return arena;
+    }
+
+    @Benchmark
+    public Expr scanAndParse() {
+        return new PrattParser(new Scanner(corpus.source()).cursor()).parse();
+    }
+}
@@ -0,0 +1,209 @@
+package crumble.bench;
+
+import crumble.Diagnostic;
+import crumble.Expr;
+import crumble.ExprArena;
+import crumble.parser.IterativeParser;
+import crumble.parser.ParseResult;
+import crumble.parser.Parser;
+import crumble.parser.PrattParser;
+import crumble.scanner.Position;
+import crumble.scanner.Scanner;
+import crumble.scanner.TokenStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Differential check of the parsers: every source is parsed by {@link Parser}, the
+ * reference, and by {@link PrattParser} and {@link IterativeParser}, both into Expr
+ * trees and into an {@link ExprArena}. The trees, including operator positions, and the
+ * reported errors must be identical. Run it after building the jmh profile:
+ * <pre>
+ * java -cp target/benchmarks.jar crumble.bench.ParserCheck [random sources]
+ * </pre>
+ * Exits with status 1 if any parser disagrees.
+ */
+public class ParserCheck {
+    private static final String[] CASES = {
+            "1", "-1", "!true", "- - - 1", "!!false == true", "1 + 2 * 3 - 4 / 5",
+            "1 - 2 - 3", "8 / 4 / 2", "1 < 2 == 3 >= 4 != 5 > 6 <= 7", "((((1))))",
+            "-(1 + 2) * !(3 == 4)", "\"a\" + \"b\"", "null == nil", "x + y * z",
+            "1;\n2 + 3;\n4", "1 + 2;", "", ";",
+            // Syntax errors, to check that recovery resynchronizes at the same tokens.
+            "1 +", "(1 + 2", "1 + 2)", "* 3", "1 2", "(1 +; 2 * 3; (4", "1 +\n2 *\n;\n3",
+            "var 1", "1 + @; 2", "\"unterminated",
+    };
+
+    private static final String[] TOKENS = {
+            "+", "-", "*", "/", "==", "!=", "<", "<=", ">", ">=", "!", "(", ")", ";",
+            "1", "2.5", "\"s\"", "true", "false", "null", "x", "\n",
+    };
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        int randomSources = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int checked = 0;
+
+        for (String source : CASES) {
+            check(source);
+            checked++;
+        }
+        for (Corpus corpus : new Corpus[] {Corpus.SMALL, Corpus.MEDIUM}) {
+            check(corpus.source());
+            checked++;
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < randomSources; i++) {
+            check(i % 2 == 0 ? wellFormed(random) : tokenSoup(random));
+            checked++;
+        }
+
+        System.out.println(checked + " sources checked, " + failures + " mismatches");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static void check(String source) {
+        TokenStream tokens = new Scanner(source).scanTokenStream();
+        String expected = describe(new Parser(tokens).parseAll());
+        compare(source, "PrattParser", expected, describe(new PrattParser(tokens).parseAll()));
+        compare(source, "IterativeParser", expected, describe(new IterativeParser(tokens).parseAll()));
+        compare(source, "IterativeParser.parseInto", describe(new Parser(tokens).parse()),
+                describeArena(tokens));
+    }
+
+    private static void compare(String source, String parser, String expected, String actual) {
+        if (expected.equals(actual)) return;
+        failures++;
+        if (failures <= 10) {
+            System.out.println(parser + " disagrees on: " + abbreviate(source));
+            System.out.println("  expected: " + abbreviate(expected));
+            System.out.println("  actual:   " + abbreviate(actual));
+        }
+    }
+
+    private static String describeArena(TokenStream tokens) {
+        ExprArena arena = new ExprArena();
+        int root = new IterativeParser(tokens).parseInto(arena);
+        return root < 0 ? "null" : describe(arena.toExpr(root));
+    }
+
+    private static String describe(ParseResult result) {
+        StringBuilder sb = new StringBuilder();
+        for (Expr expression : result.getExpressions()) {
+            sb.append(describe(expression)).append('\n');
+        }
+        for (Diagnostic diagnostic : result.getDiagnostics()) {
+            sb.append(diagnostic).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Renders a tree as an s-expression with the line and offset of every operator. Uses
+     * its own stack, so any depth the iterative parser accepts can be described.
+     */
+    private static String describe(Expr root) {
+        if (root == null) return "null";
+
+        StringBuilder sb = new StringBuilder();
+        List<Object> pending = new ArrayList<>(); // Expr, or a String to append as is
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Object node = pending.remove(pending.size() - 1);
+            if (node instanceof String) {
+                sb.append((String) node);
+            } else if (node instanceof Expr.Binary) {
+                Expr.Binary binary = (Expr.Binary) node;
+                sb.append('(').append(binary.operator.getText()).append(position(binary.position)).append(' ');
+                pending.add(")");
+                pending.add(binary.right);
+                pending.add(" ");
+                pending.add(binary.left);
+            } else if (node instanceof Expr.Unary) {
+                Expr.Unary unary = (Expr.Unary) node;
+                sb.append('(').append(unary.operator.getText()).append(position(unary.position)).append(' ');
+                pending.add(")");
+                pending.add(unary.right);
+            } else if (node instanceof Expr.Grouping) {
+                sb.append("(group ");
+                pending.add(")");
+                pending.add(((Expr.Grouping) node).expression);
+            } else if (node instanceof Expr.Variable) {
+                Expr.Variable variable = (Expr.Variable) node;
+                sb.append(variable.name).append(position(variable.position));
+            } else if (node instanceof Expr.NumberLiteral) {
+                sb.append(((Expr.NumberLiteral) node).value);
+            } else if (node instanceof Expr.BooleanLiteral) {
+                sb.append(((Expr.BooleanLiteral) node).value);
+            } else if (node instanceof Expr.StringLiteral) {
+                sb.append('"').append(((Expr.StringLiteral) node).value).append('"');
+            } else if (node instanceof Expr.NullLiteral) {
+                sb.append("null");
+            } else {
+                sb.append("?").append(node.getClass().getSimpleName());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String position(long position) {
+        return "@" + Position.line(position) + ":" + Position.offset(position);
+    }
+
+    /**
+     * @return a random expression that parses, a few levels deep.
+     */
+    private static String wellFormed(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int statements = 1 + random.nextInt(3);
+        for (int i = 0; i < statements; i++) {
+            if (i > 0) sb.append(random.nextBoolean() ? "; " : ";\n");
+            expression(sb, random, 6);
+        }
+        return sb.toString();
+    }
+
+    private static void expression(StringBuilder sb, Random random, int depth) {
+        int choice = depth == 0 ? 0 : random.nextInt(6);
+        switch (choice) {
+            case 0:
+            case 1:
+                sb.append(TOKENS[14 + random.nextInt(7)]); // A literal or variable
+                break;
+            case 2:
+                sb.append(random.nextBoolean() ? "-" : "!");
+                expression(sb, random, depth - 1);
+                break;
+            case 3:
+                sb.append('(');
+                expression(sb, random, depth - 1);
+                sb.append(')');
+                break;
+            default:
+                expression(sb, random, depth - 1);
+                sb.append(' ').append(TOKENS[random.nextInt(10)]).append(' ');
+                expression(sb, random, depth - 1);
+        }
+    }
+
+    /**
+     * @return a random sequence of tokens, which mostly fails to parse.
+     */
+    private static String tokenSoup(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = 1 + random.nextInt(24);
+        for (int i = 0; i < length; i++) {
+            sb.append(TOKENS[random.nextInt(TOKENS.length)]).append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static String abbreviate(String text) {
+        String line = text.replace("\n", "\\n");
+        return line.length() <= 200 ? line : line.substring(0, 200) + "...";
+    }
+}
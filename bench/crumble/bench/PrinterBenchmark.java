@@ -0,0 +1,63 @@
+package crumble.bench;
+
+import crumble.Expr;
+import crumble.parser.Parser;
+import crumble.scanner.Scanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tool.ASTPrettyPrinter;
+import tool.ASTStreamPrinter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of rendering an already-parsed syntax tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrinterBenchmark {
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public Corpus corpus;
+
+    private Expr tree;
+
+    @Setup
+    public void setup() {
+        tree = new Parser(new Scanner(corpus.source()).scanTokenStream()).parse();
+    }
+
+    @Benchmark
+    public String prettyPrint() {
+        return new ASTPrettyPrinter().print(tree);
+    }
+
+    @Benchmark
+    public String streamToString() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new ASTStreamPrinter().print(tree, out);
+        return out.toString();
+    }
+
+    /**
+     * Printing cost alone, without keeping the output.
+     */
+    @Benchmark
+    public void streamToWriter() throws IOException {
+        new ASTStreamPrinter().print(tree, Writer.nullWriter());
+    }
+}
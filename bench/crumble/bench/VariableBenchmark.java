@@ -0,0 +1,55 @@
+package crumble.bench;
+
+import crumble.Stmt;
+import crumble.interpreter.Interpreter;
+import crumble.parser.StatementParser;
+import crumble.scanner.Scanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of running a block that mostly reads and writes variables, globals and
+ * locals of nested scopes, on the tree-walking interpreter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariableBenchmark {
+    private static final String GLOBALS = "var a = 1; var b = 2; var c = 3;";
+    private static final String BLOCK = "{ var x = a + b; { var y = x * c - b; { var z = x + y - a * c;"
+            + " a = z - x - y + a * c + a - c * a; b = b + z - z; } x = y - x; } c = c + x - x; }";
+
+    private final Interpreter interpreter = new Interpreter();
+    private Stmt block;
+
+    @Setup
+    public void setup() {
+        interpreter.interpret(parse(GLOBALS));
+        List<Stmt> statements = parse(BLOCK);
+        interpreter.resolve(statements);
+        block = statements.get(0);
+    }
+
+    @Benchmark
+    public void executeBlock() {
+        interpreter.execute(block);
+    }
+
+    private static List<Stmt> parse(String source) {
+        return new StatementParser(new Scanner(source).scanTokenStream()).parseStatements();
+    }
+}
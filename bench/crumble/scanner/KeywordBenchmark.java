@@ -0,0 +1,95 @@
+package crumble.scanner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares keyword recognition by {@link Keywords}' in-place trie against the
+ * substring-and-HashMap lookup the scanner used before, on identifier-heavy input.
+ * Lives in the scanner package because the lookup is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KeywordBenchmark {
+    private static final String[] KEYWORDS = {
+            "and", "class", "else", "false", "for", "fun", "if", "null",
+            "or", "print", "return", "super", "this", "true", "var", "while"
+    };
+    private static final int WORDS = 10_000;
+
+    private SourceBuffer source;
+    private String text;
+    private int[] starts;
+    private int[] lengths;
+    private Map<String, TokenType> keywordMap;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        starts = new int[WORDS];
+        lengths = new int[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            String word = random.nextInt(4) == 0
+                    ? KEYWORDS[random.nextInt(KEYWORDS.length)]
+                    : identifier(random);
+            starts[i] = sb.length();
+            lengths[i] = word.length();
+            sb.append(word).append(' ');
+        }
+        text = sb.toString();
+        source = SourceBuffer.of(text);
+
+        keywordMap = new HashMap<>();
+        for (String keyword : KEYWORDS) {
+            keywordMap.put(keyword, Keywords.lookup(SourceBuffer.of(keyword), 0, keyword.length()));
+        }
+    }
+
+    /**
+     * Identifiers that mostly share a first letter with some keyword, so the trie
+     * cannot reject them from the first character alone.
+     */
+    private static String identifier(Random random) {
+        String prefixes = "acefinoprstvw";
+        StringBuilder sb = new StringBuilder();
+        sb.append(prefixes.charAt(random.nextInt(prefixes.length())));
+        int length = 1 + random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public void trie(Blackhole blackhole) {
+        for (int i = 0; i < WORDS; i++) {
+            blackhole.consume(Keywords.lookup(source, starts[i], lengths[i]));
+        }
+    }
+
+    @Benchmark
+    public void substringHashMap(Blackhole blackhole) {
+        for (int i = 0; i < WORDS; i++) {
+            String word = source.text(starts[i], lengths[i]);
+            blackhole.consume(keywordMap.getOrDefault(word, TokenType.IDENTIFIER));
+        }
+    }
+
+    @Benchmark
+    public TokenStream scanIdentifiers() {
+        return new Scanner(text).scanTokenStream();
+    }
+}
@@ -1,25 +1,64 @@
 package crumble;
 
-import crumble.parser.Parser;
+import crumble.interpreter.Interpreter;
+import crumble.interpreter.RuntimeError;
+import crumble.optimizer.ConstantFolder;
+import crumble.parser.IterativeParser;
+import crumble.parser.ParseResult;
 import crumble.scanner.Scanner;
-import crumble.scanner.Token;
-import crumble.scanner.TokenType;
-import tool.ASTPrettyPrinter;
+import crumble.scanner.SourceBuffer;
+import crumble.vm.Chunk;
+import crumble.vm.ChunkCache;
+import crumble.vm.Compiler;
+import crumble.vm.VM;
+import tool.ASTStreamPrinter;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * The {@code Crumble} class serves as the entry point for running the Crumble interpreter.
  * It can read source code from a file or from the standard input and then scan it into tokens.
+ *
+ * Running a file is stack-safe: expressions nested to any depth run without a
+ * StackOverflowError, in every mode. The iterative parser, the constant folder, the
+ * compiler, the VM, the tree-walking interpreter ({@code -Dcrumble.treeWalker=true}) and
+ * the tree printer ({@code -Dcrumble.dumpAst=true}) all keep explicit stacks. So does
+ * the prompt: its statement parser, resolver and interpreter handle blocks as well as
+ * expressions nested to any depth. The recursive-descent and Pratt expression parsers
+ * recurse, but they are kept as references and are not on either path.
  */
 public class Crumble {
+    // The tree-walking interpreter is kept as a reference to diff the VM against.
+    private static final boolean useTreeWalker = Boolean.getBoolean("crumble.treeWalker");
+    private static final boolean printFoldStats = Boolean.getBoolean("crumble.foldStats");
+    private static final boolean dumpTokens = Boolean.getBoolean("crumble.dumpTokens");
+    private static final boolean dumpAst = Boolean.getBoolean("crumble.dumpAst");
+    private static final ConstantFolder folder = new ConstantFolder();
+    private static final ASTStreamPrinter printer = new ASTStreamPrinter();
+    private static final Writer treeOut = new BufferedWriter(new OutputStreamWriter(System.out));
+    private static final ChunkCache cache = System.getProperty("crumble.cache") == null
+            ? null : new ChunkCache(Paths.get(System.getProperty("crumble.cache")));
+    private static final Interpreter interpreter = new Interpreter();
+    private static final VM vm = new VM();
     static boolean hadError = false; // Tracks if an error occurred during execution
+    static boolean hadRuntimeError = false; // Tracks if evaluation failed
 
     /**
      * Main method to execute the interpreter. It reads from a file if an argument is provided,
@@ -40,32 +79,26 @@ public class Crumble {
         }
 
         if (hadError) System.exit(65); // Exit with an error code if an error occurred
+        if (hadRuntimeError) System.exit(70); // Exit with an error code if evaluation failed
     }
 
     /**
-     * Logs an error message with line information and sets the {@code hadError} flag.
+     * Logs an error raised while evaluating and sets the {@code hadRuntimeError} flag.
      *
-     * @param line    the line number where the error occurred
-     * @param message the error message
+     * @param error the runtime error to report
      */
-
-    public static void error(int line, String message) {
-        System.err.println("Error at line " + line + ": " + message);
-        hadError = true;
-    }
-
-    public static void error(Token token, String message) {
-        if (token.getType() == TokenType.EOF) {
-            report(token.getLine(), " at end", message);
-        } else {
-            report(token.getLine(), " at '" + token.getLexeme() + "'", message);
-        }
+    private static void runtimeError(RuntimeError error) {
+        System.err.println(error.getMessage() + "\n[line " + error.getLine() + "]");
+        hadRuntimeError = true;
     }
 
 
     /**
-     * Starts an interactive prompt where users can enter Crumble code line by line.
-     * Scans and processes each line immediately.
+     * Starts an interactive prompt where users can enter Crumble statements line by line.
+     * Variables stay defined for the rest of the session, see {@link ReplSession}. Setting
+     * {@code -Dcrumble.dumpTokens=true} or {@code -Dcrumble.dumpAst=true} prints the tokens
+     * or syntax trees of each input. The exit status reflects the session's errors, as it
+     * would those of a file.
      *
      * @throws IOException if an I/O error occurs during reading
      */
@@ -73,63 +106,167 @@ public class Crumble {
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
 
-        while (true) {
-            System.out.print("> ");
-            String line = reader.readLine();
-            if (line == null) break; // Exit on EOF (Ctrl+D)
-
-            hadError = false; // Reset error flag for each new line
-            run(line);
-        }
+        ReplSession session = new ReplSession().dumpTokens(dumpTokens).dumpAst(dumpAst);
+        session.run(reader);
+        hadError = session.hadError();
+        hadRuntimeError = session.hadRuntimeError();
     }
 
     /**
-     * Reads the entire content of a file and runs it as Crumble source code.
+     * Runs a file as Crumble source code. The file is never copied into a String: when
+     * the platform charset is UTF-8 or ASCII it is memory-mapped and scanned in place,
+     * otherwise it is decoded and streamed into the parser in fixed-size chunks.
+     * Setting {@code -Dcrumble.cache=<directory>}
+     * keeps the compiled bytecode of each file there, see {@link #runCached}.
      *
      * @param fileName the path of the source file to run
      * @throws IOException if an I/O error occurs while reading the file
      */
     private static void runFile(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        Charset charset = Charset.defaultCharset();
         try {
-            byte[] bytes = Files.readAllBytes(Paths.get(fileName));
-            run(new String(bytes, Charset.defaultCharset()));
-        } catch (IOException e) {
+            if (cache != null && !useTreeWalker && Files.size(path) <= Integer.MAX_VALUE) {
+                runCached(path, charset);
+            } else {
+                execute(parse(path, charset));
+            }
+        } catch (IOException | UncheckedIOException e) {
             System.err.println("Error reading file: " + fileName);
             System.exit(66); // Exit with an error code for file read failure
         }
     }
 
+    private static ParseResult parse(Path path, Charset charset) throws IOException {
+        if (isUtf8Compatible(charset) && Files.size(path) <= Integer.MAX_VALUE) {
+            return parse(new Scanner(SourceBuffer.ofUtf8(map(path))));
+        }
+        try (Reader reader = Files.newBufferedReader(path, charset)) {
+            return parse(new Scanner(reader));
+        }
+    }
 
     /**
-     * Runs the provided Crumble source code by scanning it into tokens.
-     * Prints each token to the standard output.
-     *
-     * @param source the source code to interpret
+     * Parses tokens as the scanner produces them, collecting the errors of both.
      */
-    private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
+    private static ParseResult parse(Scanner scanner) {
+        return new IterativeParser(scanner.cursor(), scanner.getDiagnostics()).parseAll();
+    }
+
+    /**
+     * Runs a file through the compiled-chunk cache. On a hit the cached bytecode runs
+     * without the file being scanned or parsed at all; on a miss the file is compiled
+     * as usual and the result stored. Syntax trees are not printed either way, since a
+     * hit never builds one. Failing to use the cache only costs a warning.
+     */
+    private static void runCached(Path path, Charset charset) throws IOException {
+        String key = cache.key(map(path), charset);
+        List<Chunk> chunks;
+        try {
+            chunks = cache.load(key);
+        } catch (IOException e) {
+            System.err.println("Warning: could not read compile cache: " + e.getMessage());
+            chunks = null;
+        }
 
-        if (!hadError) {
-            for (Token token : tokens) {
-                System.out.println(token);
+        if (chunks == null) {
+            ParseResult result = parse(path, charset);
+            if (reportErrors(result)) return;
+
+            chunks = new ArrayList<>(result.getExpressions().size());
+            for (Expr expression : result.getExpressions()) {
+                chunks.add(new Compiler().compile(folder.fold(expression)));
+            }
+            try {
+                cache.store(key, chunks);
+            } catch (IOException e) {
+                System.err.println("Warning: could not write compile cache: " + e.getMessage());
             }
         }
 
-        Parser parser = new Parser(tokens);
-        Expr expression = parser.parse();
+        for (Chunk chunk : chunks) {
+            try {
+                vm.interpret(chunk);
+            } catch (RuntimeError error) {
+                runtimeError(error);
+            }
+        }
+    }
 
+    /**
+     * Maps a whole file read-only. The mapping stays valid after the channel is closed.
+     */
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * ASCII is a subset of UTF-8, and the scanner only ever decodes UTF-8 itself.
+     */
+    private static boolean isUtf8Compatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
+    }
+
+
+    /**
+     * Reports every syntax error, or, if scanning and parsing succeeded, folds the constants
+     * of each expression, compiles it to bytecode and runs it. Setting
+     * {@code -Dcrumble.treeWalker=true} evaluates the tree directly instead,
+     * {@code -Dcrumble.dumpAst=true} prints each syntax tree first, and
+     * {@code -Dcrumble.foldStats=true} reports what folding removed on standard error.
+     *
+     * @param result the parsed expressions and syntax errors
+     */
+    private static void execute(ParseResult result) {
         // Stop if there was a syntax error.
-        if (hadError) return;
+        if (reportErrors(result)) return;
 
-        System.out.println(new ASTPrettyPrinter().print(expression));
+        for (Expr expression : result.getExpressions()) {
+            if (dumpAst) printTree(expression);
 
+            Expr optimized = folder.fold(expression);
+            try {
+                if (useTreeWalker) {
+                    interpreter.interpret(optimized);
+                } else {
+                    vm.interpret(new Compiler().compile(optimized));
+                }
+            } catch (RuntimeError error) {
+                runtimeError(error);
+            }
+        }
+        if (printFoldStats) System.err.println(folder);
+    }
+
+    /**
+     * Streams a syntax tree to standard output, followed by a line break, and flushes it
+     * so it comes out ahead of the value printed by the evaluator. Exits if the output
+     * cannot be written, which is not a problem with the source being read.
+     */
+    private static void printTree(Expr expression) {
+        try {
+            printer.print(expression, treeOut);
+            treeOut.write(System.lineSeparator());
+            treeOut.flush();
+        } catch (IOException e) {
+            System.err.println("Error writing output: " + e.getMessage());
+            System.exit(74); // Exit with an error code for output failure
+        }
     }
 
-    private static void report(int line, String where,
-                               String message) {
-        System.err.println(
-                "[line " + line + "] Error" + where + ": " + message);
-        hadError = true;
+    /**
+     * Prints the scanning and syntax errors of a parse and sets the {@code hadError} flag
+     * if there were any.
+     *
+     * @return true if scanning or parsing failed
+     */
+    private static boolean reportErrors(ParseResult result) {
+        for (Diagnostic diagnostic : result.getDiagnostics()) {
+            System.err.println(diagnostic);
+            hadError = true;
+        }
+        return result.hasErrors();
     }
 }
@@ -0,0 +1,51 @@
+package crumble;
+
+import crumble.scanner.Token;
+import crumble.scanner.TokenType;
+
+/**
+ * A syntax error found while scanning or parsing, recorded instead of printed so that a
+ * caller can collect every error in a source before deciding what to do with them.
+ */
+public final class Diagnostic {
+    private final int line;
+    private final String where;
+    private final String message;
+
+    Diagnostic(int line, String where, String message) {
+        this.line = line;
+        this.where = where;
+        this.message = message;
+    }
+
+    static Diagnostic at(Token token, String message) {
+        if (token.getType() == TokenType.EOF) {
+            return new Diagnostic(token.getLine(), " at end", message);
+        }
+        return new Diagnostic(token.getLine(), " at '" + token.getLexeme() + "'", message);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return where on the line the error is, e.g. {@code " at '+'"} or {@code " at end"};
+     *         empty for errors found by the scanner.
+     */
+    public String getWhere() {
+        return where;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the error formatted the way Crumble reports it.
+     */
+    @Override
+    public String toString() {
+        return "[line " + line + "] Error" + where + ": " + message;
+    }
+}
@@ -0,0 +1,51 @@
+package crumble;
+
+import crumble.scanner.Token;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the errors of one compilation. A {@link crumble.scanner.Scanner} and the
+ * {@link crumble.parser.Parser} reading its tokens share an instance, so their errors
+ * end up in one list in the order they were found.
+ *
+ * Nothing here is static: compilations with their own instances can run on different
+ * threads at once. A single instance is not thread-safe.
+ */
+public final class Diagnostics {
+    private final List<Diagnostic> errors = new ArrayList<>();
+    private final List<Diagnostic> view = Collections.unmodifiableList(errors);
+
+    /**
+     * Records an error found by the scanner, which has no token to point at.
+     *
+     * @param line    the line of the error.
+     * @param message what went wrong.
+     */
+    public void error(int line, String message) {
+        errors.add(new Diagnostic(line, "", message));
+    }
+
+    /**
+     * Records an error found at a token.
+     *
+     * @param token   the token the error was found at.
+     * @param message what went wrong.
+     */
+    public void error(Token token, String message) {
+        errors.add(Diagnostic.at(token, message));
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * @return a read-only view of the errors so far, in the order they were found.
+     */
+    public List<Diagnostic> getErrors() {
+        return view;
+    }
+}
@@ -1,14 +1,15 @@
 package crumble;
 
-import crumble.scanner.Token;
+import crumble.interpreter.Resolver;
+import crumble.scanner.TokenType;
 
 import java.util.List;
 
 /**
  * This is an autogenerated class representing an abstract base class for the AST nodes.
  * The `Expr` class serves as the base for various node types in the abstract syntax tree.
- * Each subclass represents a different kind of node in the AST, such as binary expressions,
- * groupings, literals, or unary expressions.
+ * Each subclass represents a different kind of node in the AST, and has a visit method in
+ * the nested `Visitor` interface.
  * 
  * This class is automatically generated by the GenerateAST utility and should not be modified.
  */
@@ -16,13 +17,19 @@ public abstract class Expr {
   public interface Visitor<R> {
     R visitBinaryExpr(Binary expr);
     R visitGroupingExpr(Grouping expr);
-    R visitLiteralExpr(Literal expr);
+    R visitNumberLiteralExpr(NumberLiteral expr);
+    R visitBooleanLiteralExpr(BooleanLiteral expr);
+    R visitStringLiteralExpr(StringLiteral expr);
+    R visitNullLiteralExpr(NullLiteral expr);
     R visitUnaryExpr(Unary expr);
+    R visitVariableExpr(Variable expr);
+    R visitAssignExpr(Assign expr);
   }
   public static class Binary extends Expr {
-    public Binary(Expr left, Token operator, Expr right) {
+    public Binary(Expr left, TokenType operator, long position, Expr right) {
       this.left = left;
       this.operator = operator;
+      this.position = position;
       this.right = right;
     }
 
@@ -32,7 +39,8 @@ public abstract class Expr {
     }
 
     public final Expr left;
-    public final Token operator;
+    public final TokenType operator;
+    public final long position;
     public final Expr right;
   }
   public static class Grouping extends Expr {
@@ -47,21 +55,55 @@ public abstract class Expr {
 
     public final Expr expression;
   }
-  public static class Literal extends Expr {
-    public Literal(Object value) {
+  public static class NumberLiteral extends Expr {
+    public NumberLiteral(double value) {
       this.value = value;
     }
 
     @Override
     public <R> R accept(Visitor<R> visitor) {
-      return visitor.visitLiteralExpr(this);
+      return visitor.visitNumberLiteralExpr(this);
     }
 
-    public final Object value;
+    public final double value;
+  }
+  public static class BooleanLiteral extends Expr {
+    public BooleanLiteral(boolean value) {
+      this.value = value;
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitBooleanLiteralExpr(this);
+    }
+
+    public final boolean value;
+  }
+  public static class StringLiteral extends Expr {
+    public StringLiteral(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitStringLiteralExpr(this);
+    }
+
+    public final String value;
+  }
+  public static class NullLiteral extends Expr {
+    public NullLiteral() {
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitNullLiteralExpr(this);
+    }
   }
   public static class Unary extends Expr {
-    public Unary(Token operator, Expr right) {
+    public Unary(TokenType operator, long position, Expr right) {
       this.operator = operator;
+      this.position = position;
       this.right = right;
     }
 
@@ -70,9 +112,82 @@ public abstract class Expr {
       return visitor.visitUnaryExpr(this);
     }
 
-    public final Token operator;
+    public final TokenType operator;
+    public final long position;
     public final Expr right;
   }
+  public static class Variable extends Expr {
+    public Variable(String name, long position) {
+      this.name = name;
+      this.position = position;
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitVariableExpr(this);
+    }
+
+    public final String name;
+    public final long position;
+    private Resolver annotatedBy;
+    private int depth = -1;
+    private int slot = -1;
+
+    public void annotate(Resolver resolver, int depth, int slot) {
+      if (resolver == null) throw new NullPointerException("resolver");
+      if (annotatedBy != null) {
+        throw new IllegalStateException("Variable has already been resolved.");
+      }
+      annotatedBy = resolver;
+      this.depth = depth;
+      this.slot = slot;
+    }
+
+    public int getDepth() {
+      return depth;
+    }
+
+    public int getSlot() {
+      return slot;
+    }
+  }
+  public static class Assign extends Expr {
+    public Assign(String name, long position, Expr value) {
+      this.name = name;
+      this.position = position;
+      this.value = value;
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitAssignExpr(this);
+    }
+
+    public final String name;
+    public final long position;
+    public final Expr value;
+    private Resolver annotatedBy;
+    private int depth = -1;
+    private int slot = -1;
+
+    public void annotate(Resolver resolver, int depth, int slot) {
+      if (resolver == null) throw new NullPointerException("resolver");
+      if (annotatedBy != null) {
+        throw new IllegalStateException("Assign has already been resolved.");
+      }
+      annotatedBy = resolver;
+      this.depth = depth;
+      this.slot = slot;
+    }
+
+    public int getDepth() {
+      return depth;
+    }
+
+    public int getSlot() {
+      return slot;
+    }
+  }
 
   public abstract <R> R accept(Visitor<R> visitor);
 }
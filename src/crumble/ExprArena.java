@@ -0,0 +1,320 @@
+package crumble;
+
+import crumble.scanner.Position;
+import crumble.scanner.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * Syntax trees stored as parallel arrays instead of one object per node.
+ *
+ * A node is an int ID indexing the arrays, which hold its kind, an operator code, up
+ * to two child IDs and the source position of its operator. Literal values live in pools: numbers
+ * unboxed in a double array and strings in a String array. A node can only be added
+ * once its children exist, so children always have smaller IDs than their parents.
+ *
+ * The node kinds match the {@link Expr} subclasses, except that the four literal
+ * classes share one kind told apart by the operator code. {@link #accept} dispatches to an
+ * ID-based {@link Visitor}, and {@link #toExpr} materializes a subtree for code that
+ * only knows {@link Expr.Visitor}. An arena is meant to hold the trees of a single
+ * compilation and is not thread-safe while being built.
+ */
+public final class ExprArena {
+    public static final byte BINARY = 0;
+    public static final byte GROUPING = 1;
+    public static final byte LITERAL = 2;
+    public static final byte UNARY = 3;
+    public static final byte VARIABLE = 4;
+
+    /**
+     * ID-based counterpart of {@link Expr.Visitor}. Implementations read a node's parts
+     * through the arena's accessors.
+     */
+    public interface Visitor<R> {
+        R visitBinaryExpr(int node);
+        R visitGroupingExpr(int node);
+        R visitLiteralExpr(int node);
+        R visitUnaryExpr(int node);
+        R visitVariableExpr(int node);
+    }
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private byte[] kinds;
+    // Binary/Unary: the operator's TokenType ordinal. Literal: NUMBER, STRING, TRUE, FALSE or
+    // NULL. Variable: IDENTIFIER.
+    private byte[] operators;
+    private int[] first;  // Binary: left. Grouping: expression. Literal, Variable: pool index.
+    private int[] second; // Binary and Unary: right.
+    private long[] positions; // Of the operator or variable, packed by Position, for runtime errors
+    private int size = 0;
+
+    private double[] numbers = new double[16];
+    private int numberCount = 0;
+    private String[] strings = new String[16];
+    private int stringCount = 0;
+
+    public ExprArena() {
+        this(64);
+    }
+
+    /**
+     * Creates an arena sized up front, e.g. from a token count, which bounds the number
+     * of nodes a parse can add.
+     *
+     * @param expectedNodes how many nodes to make room for before growing.
+     */
+    public ExprArena(int expectedNodes) {
+        int capacity = Math.max(expectedNodes, 1);
+        kinds = new byte[capacity];
+        operators = new byte[capacity];
+        first = new int[capacity];
+        second = new int[capacity];
+        positions = new long[capacity];
+    }
+
+    // ===================
+    // Building
+    // ===================
+
+    public int binary(int left, TokenType operator, long position, int right) {
+        checkNode(left);
+        checkNode(right);
+        return add(BINARY, operator, left, right, position);
+    }
+
+    public int grouping(int expression) {
+        checkNode(expression);
+        return add(GROUPING, TokenType.LEFT_PAREN, expression, 0, Position.NONE);
+    }
+
+    public int unary(TokenType operator, long position, int right) {
+        checkNode(right);
+        return add(UNARY, operator, 0, right, position);
+    }
+
+    public int number(double value) {
+        if (numberCount == numbers.length) {
+            numbers = Arrays.copyOf(numbers, numberCount * 2);
+        }
+        numbers[numberCount] = value;
+        return add(LITERAL, TokenType.NUMBER, numberCount++, 0, Position.NONE);
+    }
+
+    public int string(String value) {
+        return add(LITERAL, TokenType.STRING, addString(value), 0, Position.NONE);
+    }
+
+    public int variable(String name, long position) {
+        return add(VARIABLE, TokenType.IDENTIFIER, addString(name), 0, position);
+    }
+
+    /**
+     * Adds a literal holding any value an Expr literal node can hold.
+     *
+     * @param value a Double, String, Boolean or null.
+     * @return the ID of the new node.
+     */
+    public int literal(Object value) {
+        if (value == null) return add(LITERAL, TokenType.NULL, 0, 0, Position.NONE);
+        if (value instanceof Boolean) {
+            return add(LITERAL, (Boolean) value ? TokenType.TRUE : TokenType.FALSE, 0, 0, Position.NONE);
+        }
+        if (value instanceof Double) return number((Double) value);
+        if (value instanceof String) return string((String) value);
+        throw new IllegalArgumentException("Not a literal value: " + value);
+    }
+
+    private int add(byte kind, TokenType operator, int a, int b, long position) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            operators = Arrays.copyOf(operators, capacity);
+            first = Arrays.copyOf(first, capacity);
+            second = Arrays.copyOf(second, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+        kinds[size] = kind;
+        operators[size] = (byte) operator.ordinal();
+        first[size] = a;
+        second[size] = b;
+        positions[size] = position;
+        return size++;
+    }
+
+    private int addString(String value) {
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, stringCount * 2);
+        }
+        strings[stringCount] = value;
+        return stringCount++;
+    }
+
+    private void checkNode(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("No node " + node + " in an arena of " + size);
+        }
+    }
+
+    // ===================
+    // Reading
+    // ===================
+
+    /**
+     * @return number of nodes in the arena.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return one of {@link #BINARY}, {@link #GROUPING}, {@link #LITERAL}, {@link #UNARY}
+     *         or {@link #VARIABLE}.
+     */
+    public byte kind(int node) {
+        return kinds[node];
+    }
+
+    /**
+     * @return the operator of a Binary or Unary node, or the token type of a Literal's value.
+     */
+    public TokenType operator(int node) {
+        return TYPES[operators[node]];
+    }
+
+    /**
+     * @return the packed {@link Position} of a Binary or Unary node's operator, or of a
+     *         Variable.
+     */
+    public long position(int node) {
+        return positions[node];
+    }
+
+    public int line(int node) {
+        return Position.line(positions[node]);
+    }
+
+    public int left(int node) {
+        return first[node];
+    }
+
+    public int right(int node) {
+        return second[node];
+    }
+
+    public int expression(int node) {
+        return first[node];
+    }
+
+    /**
+     * @return the name a Variable node reads.
+     */
+    public String name(int node) {
+        return strings[first[node]];
+    }
+
+    /**
+     * @return the value of a NUMBER literal, without boxing it.
+     */
+    public double number(int node) {
+        return numbers[first[node]];
+    }
+
+    /**
+     * @return the value of a Literal node, boxed: a Double, String, Boolean or null.
+     */
+    public Object literal(int node) {
+        switch (operator(node)) {
+            case NUMBER: return numbers[first[node]];
+            case STRING: return strings[first[node]];
+            case TRUE: return true;
+            case FALSE: return false;
+            default: return null;
+        }
+    }
+
+    public <R> R accept(int node, Visitor<R> visitor) {
+        switch (kinds[node]) {
+            case BINARY: return visitor.visitBinaryExpr(node);
+            case GROUPING: return visitor.visitGroupingExpr(node);
+            case LITERAL: return visitor.visitLiteralExpr(node);
+            case VARIABLE: return visitor.visitVariableExpr(node);
+            default: return visitor.visitUnaryExpr(node);
+        }
+    }
+
+    /**
+     * Builds the {@link Expr} tree rooted at a node. The walk uses its own stack, so deep
+     * trees do not overflow the Java stack.
+     *
+     * @param root the ID of the subtree's root.
+     * @return the equivalent Expr tree.
+     */
+    public Expr toExpr(int root) {
+        checkNode(root);
+        int[] pending = new int[16];  // Nodes to visit; ~id once their children are built
+        int pendingCount = 0;
+        Expr[] built = new Expr[16];  // Finished subtrees, in post-order
+        int builtCount = 0;
+
+        pending[pendingCount++] = root;
+        while (pendingCount > 0) {
+            if (pendingCount + 2 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            if (builtCount == built.length) {
+                built = Arrays.copyOf(built, builtCount * 2);
+            }
+
+            int entry = pending[--pendingCount];
+            if (entry >= 0) {
+                switch (kinds[entry]) {
+                    case LITERAL:
+                        built[builtCount++] = toLiteral(entry);
+                        break;
+                    case VARIABLE:
+                        built[builtCount++] = new Expr.Variable(strings[first[entry]], positions[entry]);
+                        break;
+                    case BINARY:
+                        pending[pendingCount++] = ~entry;
+                        pending[pendingCount++] = second[entry];
+                        pending[pendingCount++] = first[entry];
+                        break;
+                    case GROUPING:
+                        pending[pendingCount++] = ~entry;
+                        pending[pendingCount++] = first[entry];
+                        break;
+                    default:
+                        pending[pendingCount++] = ~entry;
+                        pending[pendingCount++] = second[entry];
+                }
+                continue;
+            }
+
+            int node = ~entry;
+            switch (kinds[node]) {
+                case BINARY: {
+                    Expr right = built[--builtCount];
+                    built[builtCount - 1] = new Expr.Binary(built[builtCount - 1], operator(node), positions[node], right);
+                    break;
+                }
+                case GROUPING:
+                    built[builtCount - 1] = new Expr.Grouping(built[builtCount - 1]);
+                    break;
+                default:
+                    built[builtCount - 1] = new Expr.Unary(operator(node), positions[node], built[builtCount - 1]);
+            }
+        }
+        return built[0];
+    }
+
+    private Expr toLiteral(int node) {
+        switch (operator(node)) {
+            case NUMBER: return new Expr.NumberLiteral(numbers[first[node]]);
+            case STRING: return new Expr.StringLiteral(strings[first[node]]);
+            case TRUE: return new Expr.BooleanLiteral(true);
+            case FALSE: return new Expr.BooleanLiteral(false);
+            default: return new Expr.NullLiteral();
+        }
+    }
+}
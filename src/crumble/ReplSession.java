@@ -0,0 +1,188 @@
+package crumble;
+
+import crumble.interpreter.Interpreter;
+import crumble.interpreter.RuntimeError;
+import crumble.optimizer.ConstantFolder;
+import crumble.parser.StatementParser;
+import crumble.scanner.Scanner;
+import crumble.scanner.TokenStream;
+import crumble.scanner.TokenType;
+import tool.ASTStreamPrinter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An interactive session that keeps its variables from one input to the next.
+ *
+ * Each input is scanned, parsed, folded and run on its own against the session's
+ * interpreter, so the cost of a line does not grow with what came before it. An input with more
+ * opening than closing braces or parentheses is held back and completed by the lines
+ * that follow; only that unfinished fragment is scanned again as it grows.
+ *
+ * Errors are printed to standard error and recorded on the session, see
+ * {@link #hadError()} and {@link #hadRuntimeError()}; nothing global is touched, so a
+ * program can run several sessions side by side.
+ */
+public class ReplSession {
+    private final ASTStreamPrinter printer = new ASTStreamPrinter();
+    private final Writer treeOut = new BufferedWriter(new OutputStreamWriter(System.out));
+
+    private final Interpreter interpreter;
+    private final ConstantFolder folder = new ConstantFolder();
+    private final StringBuilder pending = new StringBuilder(); // Lines of an unfinished input
+    private boolean dumpTokens = false;
+    private boolean dumpAst = false;
+    private boolean hadError = false;        // The latest input failed to scan or parse
+    private boolean hadRuntimeError = false; // Some input failed while running
+
+    public ReplSession() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * @param globals values for variables the session has not defined itself, by name;
+     *                only read.
+     */
+    public ReplSession(Map<String, ?> globals) {
+        this.interpreter = new Interpreter(globals);
+    }
+
+    /**
+     * Prints the tokens of each input before running it.
+     */
+    public ReplSession dumpTokens(boolean dumpTokens) {
+        this.dumpTokens = dumpTokens;
+        return this;
+    }
+
+    /**
+     * Prints the syntax tree of each statement before running it.
+     */
+    public ReplSession dumpAst(boolean dumpAst) {
+        this.dumpAst = dumpAst;
+        return this;
+    }
+
+    /**
+     * @return true if the latest input had syntax errors. Cleared by each new line.
+     */
+    public boolean hadError() {
+        return hadError;
+    }
+
+    /**
+     * @return true if any input so far stopped with a runtime error.
+     */
+    public boolean hadRuntimeError() {
+        return hadRuntimeError;
+    }
+
+    /**
+     * Reads and runs lines until the end of the input.
+     *
+     * @param reader where to read lines from.
+     * @throws IOException if reading fails.
+     */
+    public void run(BufferedReader reader) throws IOException {
+        while (true) {
+            System.out.print(pending.length() == 0 ? "> " : "... ");
+            String line = reader.readLine();
+            if (line == null) break; // Exit on EOF (Ctrl+D)
+            submit(line);
+        }
+    }
+
+    /**
+     * Adds a line to the session and runs it, together with any unfinished lines before
+     * it, once its braces and parentheses balance. A blank line runs an unfinished input
+     * as it is, so its syntax errors get reported.
+     *
+     * @param line the line, without its line break.
+     * @return true if the input is still unfinished and more lines are expected.
+     */
+    public boolean submit(String line) {
+        hadError = false;
+        boolean force = pending.length() > 0 && line.isBlank();
+        pending.append(line).append('\n');
+
+        Scanner scanner = new Scanner(pending.toString());
+        TokenStream tokens = scanner.scanTokenStream();
+        if (!force && !scanner.getDiagnostics().hasErrors() && depth(tokens) > 0) {
+            return true;
+        }
+        pending.setLength(0);
+
+        if (dumpTokens && !scanner.getDiagnostics().hasErrors()) {
+            for (int i = 0; i < tokens.size(); i++) {
+                System.out.println(tokens.token(i));
+            }
+        }
+
+        Diagnostics diagnostics = scanner.getDiagnostics();
+        List<Stmt> parsed = new StatementParser(tokens.cursor(), diagnostics).parseStatements();
+        if (diagnostics.hasErrors()) {
+            for (Diagnostic diagnostic : diagnostics.getErrors()) {
+                System.err.println(diagnostic);
+            }
+            hadError = true;
+            return false;
+        }
+
+        // Folding comes first: it builds new nodes, which would lose the resolver's slots.
+        List<Stmt> statements = folder.fold(parsed);
+        interpreter.resolve(statements);
+        try {
+            for (int i = 0; i < statements.size(); i++) {
+                Stmt statement = statements.get(i);
+                if (dumpAst) printTree(parsed.get(i));
+
+                // A bare expression echoes its value, as the prompt always has.
+                if (statement instanceof Stmt.Expression) {
+                    Object value = interpreter.evaluate(((Stmt.Expression) statement).expression);
+                    System.out.println(Interpreter.stringify(value));
+                } else {
+                    interpreter.execute(statement);
+                }
+            }
+        } catch (RuntimeError error) {
+            System.err.println(error.getMessage() + "\n[line " + error.getLine() + "]");
+            hadRuntimeError = true;
+        }
+        return false;
+    }
+
+    /**
+     * Streams a statement's syntax tree to standard output, followed by a blank line,
+     * and flushes it so it comes out ahead of anything the statement prints.
+     */
+    private void printTree(Stmt statement) {
+        try {
+            printer.print(statement, treeOut);
+            treeOut.write(System.lineSeparator());
+            treeOut.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return how many more braces and parentheses the tokens open than they close.
+     */
+    private static int depth(TokenStream tokens) {
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenType type = tokens.type(i);
+            if (type == TokenType.LEFT_BRACE || type == TokenType.LEFT_PAREN) depth++;
+            if (type == TokenType.RIGHT_BRACE || type == TokenType.RIGHT_PAREN) depth--;
+        }
+        return depth;
+    }
+}
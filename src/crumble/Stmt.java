@@ -0,0 +1,121 @@
+package crumble;
+
+import crumble.interpreter.Resolver;
+import crumble.scanner.TokenType;
+
+import java.util.List;
+
+/**
+ * This is an autogenerated class representing an abstract base class for the AST nodes.
+ * The `Stmt` class serves as the base for various node types in the abstract syntax tree.
+ * Each subclass represents a different kind of node in the AST, and has a visit method in
+ * the nested `Visitor` interface.
+ * 
+ * This class is automatically generated by the GenerateAST utility and should not be modified.
+ */
+public abstract class Stmt {
+  public interface Visitor<R> {
+    R visitBlockStmt(Block stmt);
+    R visitExpressionStmt(Expression stmt);
+    R visitPrintStmt(Print stmt);
+    R visitVarStmt(Var stmt);
+  }
+  public static class Block extends Stmt {
+    public Block(List<Stmt> statements) {
+      this.statements = statements;
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitBlockStmt(this);
+    }
+
+    public final List<Stmt> statements;
+    private Resolver annotatedBy;
+    private int slots = -1;
+
+    public void annotate(Resolver resolver, int slots) {
+      if (resolver == null) throw new NullPointerException("resolver");
+      if (annotatedBy != null) {
+        throw new IllegalStateException("Block has already been resolved.");
+      }
+      annotatedBy = resolver;
+      this.slots = slots;
+    }
+
+    public int getSlots() {
+      return slots;
+    }
+  }
+  public static class Expression extends Stmt {
+    public Expression(Expr expression) {
+      this.expression = expression;
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitExpressionStmt(this);
+    }
+
+    public final Expr expression;
+  }
+  public static class Print extends Stmt {
+    public Print(Expr expression) {
+      this.expression = expression;
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitPrintStmt(this);
+    }
+
+    public final Expr expression;
+  }
+  public static class Var extends Stmt {
+    public Var(String name, long position, Expr initializer) {
+      this.name = name;
+      this.position = position;
+      this.initializer = initializer;
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitVarStmt(this);
+    }
+
+    public final String name;
+    public final long position;
+    public final Expr initializer;
+    private Resolver annotatedBy;
+    private int slot = -1;
+
+    public void annotate(Resolver resolver, int slot) {
+      if (resolver == null) throw new NullPointerException("resolver");
+      if (annotatedBy != null) {
+        throw new IllegalStateException("Var has already been resolved.");
+      }
+      annotatedBy = resolver;
+      this.slot = slot;
+    }
+
+    public int getSlot() {
+      return slot;
+    }
+  }
+
+  private Resolver resolvedBy;
+
+  public void claim(Resolver resolver) {
+    if (resolver == null) throw new NullPointerException("resolver");
+    if (resolvedBy != null) {
+      throw new IllegalStateException("Stmt has already been resolved.");
+    }
+    resolvedBy = resolver;
+  }
+
+  public boolean isResolvedBy(Resolver resolver) {
+    return resolvedBy != null && resolvedBy == resolver;
+  }
+
+  public abstract <R> R accept(Visitor<R> visitor);
+}
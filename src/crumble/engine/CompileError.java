@@ -0,0 +1,26 @@
+package crumble.engine;
+
+import crumble.Diagnostic;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Exception raised by {@link CrumbleEngine#compile} when a source does not scan or
+ * parse. It carries every error found, not just the first.
+ */
+public class CompileError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Diagnostic> diagnostics;
+
+    public CompileError(List<Diagnostic> diagnostics) {
+        super(diagnostics.stream().map(Diagnostic::toString).collect(Collectors.joining("\n")));
+        this.diagnostics = Collections.unmodifiableList(diagnostics);
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+}
@@ -0,0 +1,75 @@
+package crumble.engine;
+
+import crumble.vm.Chunk;
+import crumble.vm.VM;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A source compiled by {@link CrumbleEngine}, ready to be evaluated any number of times.
+ *
+ * A script only holds the bytecode of its expressions, which is never modified, so one
+ * instance can be evaluated from many threads at once. Each evaluation runs on a VM of
+ * its own.
+ */
+public final class CompiledScript {
+    private final Chunk[] chunks;
+
+    CompiledScript(List<Chunk> chunks) {
+        this.chunks = chunks.toArray(new Chunk[0]);
+    }
+
+    /**
+     * Evaluates the script with no variables defined.
+     *
+     * @return the value of the last expression, or null if there is none.
+     * @throws crumble.interpreter.RuntimeError if evaluating fails.
+     */
+    public Object eval() {
+        return eval(Collections.emptyMap());
+    }
+
+    /**
+     * Evaluates every expression of the script in order.
+     *
+     * @param bindings the value of each variable the script reads, by name. Any
+     *                 {@link Number} is read as a double. The map is only read, and must
+     *                 not change during the call.
+     * @return the value of the last expression: a Double, Boolean, String, null or a
+     *         value taken from {@code bindings}.
+     * @throws crumble.interpreter.RuntimeError if evaluating fails, e.g. when the script
+     *         reads a variable that is not bound.
+     */
+    public Object eval(Map<String, ?> bindings) {
+        VM vm = new VM();
+        Object value = null;
+        for (Chunk chunk : chunks) {
+            value = vm.run(chunk, bindings);
+        }
+        return value;
+    }
+
+    /**
+     * @return total size of the script's bytecode, in bytes.
+     */
+    public int size() {
+        int size = 0;
+        for (Chunk chunk : chunks) {
+            size += chunk.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return a rough count of the heap bytes the script holds on to.
+     */
+    public long estimatedBytes() {
+        long bytes = 16 + 16 + 4L * chunks.length; // The script and its chunk array
+        for (Chunk chunk : chunks) {
+            bytes += chunk.estimatedBytes();
+        }
+        return bytes;
+    }
+}
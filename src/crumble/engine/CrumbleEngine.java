@@ -0,0 +1,97 @@
+package crumble.engine;
+
+import crumble.Expr;
+import crumble.optimizer.ConstantFolder;
+import crumble.parser.IterativeParser;
+import crumble.parser.ParseResult;
+import crumble.scanner.Scanner;
+import crumble.vm.Chunk;
+import crumble.vm.Compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point for running Crumble from other Java code.
+ *
+ * {@link #compile} turns a source into a {@link CompiledScript} once; the script can
+ * then be evaluated with different variable bindings as often as needed. Nothing is
+ * printed: syntax errors come back as a {@link CompileError} and evaluation errors as a
+ * {@link crumble.interpreter.RuntimeError}.
+ *
+ * Compiled scripts are kept in a {@link ScriptCache}, so a source that is compiled
+ * again, or passed to {@link #eval} again, is not recompiled. Every compilation builds
+ * its own scanner, parser, folder and compiler, so an engine can be shared between
+ * threads.
+ */
+public final class CrumbleEngine {
+    public static final int DEFAULT_CACHE_ENTRIES = 1024;
+    public static final long DEFAULT_CACHE_BYTES = 16L << 20;
+
+    private final ScriptCache cache;
+
+    /**
+     * Creates an engine caching up to {@link #DEFAULT_CACHE_ENTRIES} scripts and
+     * {@link #DEFAULT_CACHE_BYTES} bytes.
+     */
+    public CrumbleEngine() {
+        this(DEFAULT_CACHE_ENTRIES, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param maxCachedScripts most compiled scripts to keep; 0 disables caching.
+     * @param maxCachedBytes   most estimated bytes of sources and scripts to keep.
+     */
+    public CrumbleEngine(int maxCachedScripts, long maxCachedBytes) {
+        this.cache = new ScriptCache(maxCachedScripts, maxCachedBytes);
+    }
+
+    /**
+     * Scans, parses, folds and compiles a source, or returns the script already cached
+     * for it. Sources with syntax errors are not cached.
+     *
+     * @param source expressions separated by semicolons, which may read variables.
+     * @return the compiled script.
+     * @throws CompileError if the source has syntax errors.
+     */
+    public CompiledScript compile(String source) {
+        return cache.get(source, CrumbleEngine::compileUncached);
+    }
+
+    /**
+     * Compiles and evaluates a source in one go. A source seen before is found in the
+     * cache; holding on to its {@link CompiledScript} still saves the lookup.
+     *
+     * @param source   the source to run.
+     * @param bindings the value of each variable the source reads, by name.
+     * @return the value of the last expression.
+     * @throws CompileError if the source has syntax errors.
+     */
+    public Object eval(String source, Map<String, ?> bindings) {
+        return compile(source).eval(bindings);
+    }
+
+    /**
+     * @return the cache of compiled scripts, e.g. to read its hit and miss counters.
+     */
+    public ScriptCache getCache() {
+        return cache;
+    }
+
+    private static CompiledScript compileUncached(String source) {
+        Scanner scanner = new Scanner(source);
+        ParseResult result = new IterativeParser(scanner.scanTokenStream().cursor(), scanner.getDiagnostics())
+                .parseAll();
+        if (result.hasErrors()) {
+            throw new CompileError(result.getDiagnostics());
+        }
+
+        ConstantFolder folder = new ConstantFolder();
+        List<Chunk> chunks = new ArrayList<>(result.getExpressions().size());
+        for (Expr expression : result.getExpressions()) {
+            chunks.add(new Compiler().compile(folder.fold(expression)));
+        }
+        return new CompiledScript(chunks);
+    }
+}
@@ -0,0 +1,202 @@
+package crumble.engine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded map from source text to its {@link CompiledScript}, so a source that keeps
+ * arriving is only scanned, parsed and compiled once.
+ *
+ * The cache is split into segments by the hash of the source, each with its own lock
+ * and an equal share of the entry and byte limits. A segment is a LinkedHashMap in
+ * access order and evicts its least recently used scripts once over either limit, so
+ * eviction is LRU within a segment rather than across the whole cache. Sources are
+ * compiled outside the lock; if two threads miss on the same source at once, both
+ * compile it and the first one stored is kept.
+ *
+ * Sizes are estimates from {@link CompiledScript#estimatedBytes()} plus the source
+ * itself. A script larger than a segment's byte limit is returned but not stored.
+ */
+public final class ScriptCache {
+    private static final int MAX_SEGMENTS = 16;
+    private static final long MIN_SEGMENT_BYTES = 16 << 10;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries most scripts to keep; 0 disables caching.
+     * @param maxBytes   most estimated bytes of sources and scripts to keep.
+     */
+    public ScriptCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+
+        // Small caches get fewer segments, so that each still has room for a fair
+        // number of scripts.
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 <= maxEntries
+                && maxBytes / (count * 2) >= MIN_SEGMENT_BYTES) {
+            count *= 2;
+        }
+
+        segments = new Segment[count];
+        segmentMask = count - 1;
+        for (int i = 0; i < count; i++) {
+            int entries = maxEntries / count + (i < maxEntries % count ? 1 : 0);
+            long bytes = maxBytes / count + (i < maxBytes % count ? 1 : 0);
+            segments[i] = new Segment(entries, bytes);
+        }
+    }
+
+    /**
+     * Returns the cached script for a source, compiling and storing it on a miss.
+     *
+     * @param source   the source text.
+     * @param compiler compiles the source on a miss; its exceptions propagate and
+     *                 nothing is stored.
+     * @return the compiled script.
+     */
+    public CompiledScript get(String source, Function<String, CompiledScript> compiler) {
+        Segment segment = segmentFor(source);
+        CompiledScript script = segment.get(source);
+        if (script != null) {
+            hits.increment();
+            return script;
+        }
+
+        misses.increment();
+        script = compiler.apply(source);
+        return segment.put(source, script, 40 + 2L * source.length() + script.estimatedBytes());
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of scripts currently stored.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return estimated bytes currently stored.
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Removes every script. Counters are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return size() + " scripts, " + getBytes() + " bytes: " + getHits() + " hits, "
+                + getMisses() + " misses, " + getEvictions() + " evictions";
+    }
+
+    private Segment segmentFor(String source) {
+        int hash = source.hashCode();
+        hash ^= hash >>> 16; // Let the high bits pick a segment too
+        return segments[hash & segmentMask];
+    }
+
+    // ===================
+    // Segments
+    // ===================
+
+    private final class Segment {
+        private final int maxEntries;
+        private final long maxBytes;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes = 0;
+
+        Segment(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized CompiledScript get(String source) {
+            Entry entry = entries.get(source); // Moves the entry to the most recent end
+            return entry == null ? null : entry.script;
+        }
+
+        /**
+         * Stores a script unless another thread stored one for the same source first.
+         *
+         * @return the script now cached for the source, or the given one if it was too
+         *         large to store.
+         */
+        synchronized CompiledScript put(String source, CompiledScript script, long weight) {
+            if (maxEntries == 0 || weight > maxBytes) return script;
+
+            Entry existing = entries.putIfAbsent(source, new Entry(script, weight));
+            if (existing != null) return existing.script;
+            bytes += weight;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries || bytes > maxBytes) {
+                Entry evicted = eldest.next().getValue();
+                eldest.remove();
+                bytes -= evicted.weight;
+                evictions.increment();
+            }
+            return script;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    private static final class Entry {
+        final CompiledScript script;
+        final long weight;
+
+        Entry(CompiledScript script, long weight) {
+            this.script = script;
+            this.weight = weight;
+        }
+    }
+}
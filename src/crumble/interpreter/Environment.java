@@ -0,0 +1,61 @@
+package crumble.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * The variables of every scope the interpreter is in, as a stack of frames with the
+ * global frame at the bottom. Variables are addressed by the (depth, slot) pairs the
+ * {@link Resolver} assigns: the frame {@code depth} scopes out from the innermost one,
+ * then the slot in it.
+ */
+final class Environment {
+    /** Value of a global slot whose declaration has not run, e.g. after a runtime error. */
+    static final Object UNDEFINED = new Object();
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[][] frames = new Object[16][];
+    private int top = 0; // Index of the innermost frame
+
+    Environment() {
+        frames[0] = EMPTY;
+    }
+
+    /**
+     * Grows the global frame to at least the given number of slots. New slots are
+     * {@link #UNDEFINED}.
+     */
+    void reserveGlobals(int slots) {
+        Object[] globals = frames[0];
+        if (slots <= globals.length) return;
+
+        Object[] grown = Arrays.copyOf(globals, Math.max(slots, globals.length * 2));
+        Arrays.fill(grown, globals.length, grown.length, UNDEFINED);
+        frames[0] = grown;
+    }
+
+    /**
+     * Enters a scope with room for the given number of variables.
+     */
+    void push(int slots) {
+        if (++top == frames.length) {
+            frames = Arrays.copyOf(frames, top * 2);
+        }
+        frames[top] = slots == 0 ? EMPTY : new Object[slots];
+    }
+
+    /**
+     * Leaves the innermost scope.
+     */
+    void pop() {
+        frames[top--] = null;
+    }
+
+    Object get(int depth, int slot) {
+        return frames[top - depth][slot];
+    }
+
+    void set(int depth, int slot, Object value) {
+        frames[top - depth][slot] = value;
+    }
+}
@@ -0,0 +1,520 @@
+package crumble.interpreter;
+
+import crumble.Expr;
+import crumble.Stmt;
+import crumble.scanner.Position;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree-walking evaluator for {@link Expr} trees and {@link Stmt}s.
+ *
+ * Numbers never get boxed while a tree is being walked. A visit that produces a
+ * number stores it in {@link #number} and returns the {@link #NUMBER} marker, so
+ * a {@link Double} is only allocated once the final value leaves {@link #evaluate}.
+ * Because of that field an instance must not be shared between threads.
+ *
+ * Expressions are walked recursively down to {@link #MAX_RECURSION} levels, where the
+ * JIT can inline the visits. A subtree below that is walked with explicit stacks
+ * instead, its operands waiting on a value stack until the node that combines them
+ * is reached, so expressions nested to any depth evaluate without overflowing the
+ * Java stack.
+ *
+ * Variables defined by statements live in array frames and are read by the slot
+ * {@link #resolve} assigned them, without looking up their names. The slots are stored
+ * on the statements, so a statement belongs to the one interpreter that resolved it.
+ * The global frame lasts as long as the interpreter, so a session can run its input
+ * one piece at a time. A name no scope defines is looked up in the bindings given to
+ * the constructor or to {@link #evaluate(Expr, Map)}.
+ *
+ * Nested blocks are run from a stack of open blocks rather than by recursion, so they
+ * too can be nested to any depth.
+ */
+public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
+    /** Marker returned in place of a boxed number; the value itself is in {@link #number}. */
+    private static final Object NUMBER = new Object();
+
+    /** Deepest level evaluated recursively; deeper subtrees use the explicit stacks. */
+    private static final int MAX_RECURSION = 256;
+
+    private double number; // Value of the most recent visit or pop that returned NUMBER
+    private int depth;     // Recursion depth of the expression being evaluated
+
+    // Nodes still to evaluate, and whether their operands are already on the value stack.
+    private Expr[] pending = new Expr[16];
+    private boolean[] ready = new boolean[16];
+    private int pendingCount = 0;
+
+    // Values of evaluated operands; for a NUMBER entry the value is in numbers.
+    private Object[] values = new Object[16];
+    private double[] numbers = new double[16];
+    private int valueCount = 0;
+
+    // Blocks being run, innermost last, and the index of the next statement in each.
+    private Stmt.Block[] blocks = new Stmt.Block[16];
+    private int[] nextStatements = new int[16];
+    private int blockCount = 0;
+
+    private Map<String, ?> bindings = Collections.emptyMap();
+    private final Environment environment = new Environment();
+    private final Resolver resolver = new Resolver();
+
+    public Interpreter() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * Creates an interpreter that falls back to the given values for variables no
+     * statement has defined.
+     *
+     * @param globals the value of each variable, by name; only read.
+     */
+    public Interpreter(Map<String, ?> globals) {
+        this.bindings = globals;
+    }
+
+    /**
+     * Evaluates the expression and prints its value.
+     *
+     * @param expression the expression to evaluate.
+     * @throws RuntimeError if evaluation fails; nothing is printed.
+     */
+    public void interpret(Expr expression) {
+        Object value = evaluate(expression);
+        System.out.println(stringify(value));
+    }
+
+    /**
+     * Evaluates the expression to a plain Java value: a Double, Boolean, String or null.
+     *
+     * @param expr the expression to evaluate.
+     * @return the value of the expression.
+     */
+    public Object evaluate(Expr expr) {
+        depth = 0; // Left behind if the previous evaluation failed
+        Object value = expr.accept(this);
+        return value == NUMBER ? Double.valueOf(number) : value;
+    }
+
+    /**
+     * Evaluates the expression with values for the variables it reads. As in the VM, any
+     * {@link Number} is read as a double.
+     *
+     * @param expr    the expression to evaluate.
+     * @param globals the value of each variable, by name; only read.
+     * @return the value of the expression.
+     */
+    public Object evaluate(Expr expr, Map<String, ?> globals) {
+        Map<String, ?> previous = this.bindings;
+        this.bindings = globals;
+        try {
+            return evaluate(expr);
+        } finally {
+            this.bindings = previous;
+        }
+    }
+
+    /**
+     * Assigns every variable in the statements its frame slot. Statements must be
+     * resolved, in the order they will run, before being passed to {@link #execute}.
+     * Globals declared here stay known to statements resolved later.
+     *
+     * @param statements the top-level statements of a parse.
+     * @throws IllegalStateException if any of them has already been resolved, by this
+     *                               or another interpreter.
+     */
+    public void resolve(List<Stmt> statements) {
+        resolver.resolve(statements);
+        environment.reserveGlobals(resolver.globalSlots());
+    }
+
+    /**
+     * Resolves and executes statements in order. Variables they define at the top level
+     * stay defined for later calls.
+     *
+     * @param statements the statements to run.
+     * @throws RuntimeError if a statement fails; the ones after it are not run.
+     */
+    public void interpret(List<Stmt> statements) {
+        resolve(statements);
+        for (Stmt statement : statements) {
+            execute(statement);
+        }
+    }
+
+    /**
+     * Executes one statement that has been through {@link #resolve}.
+     *
+     * @param stmt the statement to run.
+     * @throws RuntimeError          if evaluating any of its expressions fails.
+     * @throws IllegalStateException if the statement was not resolved by this interpreter.
+     */
+    public void execute(Stmt stmt) {
+        if (!stmt.isResolvedBy(resolver)) {
+            throw new IllegalStateException("Statement was not resolved by this interpreter.");
+        }
+        stmt.accept(this);
+    }
+
+    // ===================
+    // Statement Visitors
+    // ===================
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        int outer = blockCount;
+        enterBlock(stmt);
+        try {
+            while (blockCount > outer) {
+                int top = blockCount - 1;
+                List<Stmt> statements = blocks[top].statements;
+                if (nextStatements[top] == statements.size()) {
+                    exitBlock();
+                    continue;
+                }
+
+                Stmt statement = statements.get(nextStatements[top]++);
+                if (statement instanceof Stmt.Block) {
+                    enterBlock((Stmt.Block) statement);
+                } else {
+                    statement.accept(this);
+                }
+            }
+        } finally {
+            while (blockCount > outer) exitBlock(); // Left open by a runtime error
+        }
+        return null;
+    }
+
+    private void enterBlock(Stmt.Block block) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            nextStatements = Arrays.copyOf(nextStatements, blockCount * 2);
+        }
+        environment.push(block.getSlots());
+        blocks[blockCount] = block;
+        nextStatements[blockCount] = 0;
+        blockCount++;
+    }
+
+    private void exitBlock() {
+        environment.pop();
+        blocks[--blockCount] = null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        evaluate(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        System.out.println(stringify(evaluate(stmt.expression)));
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        environment.set(0, stmt.getSlot(), stmt.initializer == null ? null : evaluate(stmt.initializer));
+        return null;
+    }
+
+    // ===================
+    // Expression Visitors
+    // ===================
+
+    @Override
+    public Object visitBinaryExpr(Expr.Binary expr) {
+        Object left = operand(expr.left);
+        double leftNumber = number;
+        Object right = operand(expr.right);
+        return binary(expr, left, leftNumber, right, number);
+    }
+
+    @Override
+    public Object visitGroupingExpr(Expr.Grouping expr) {
+        return operand(expr.expression);
+    }
+
+    @Override
+    public Object visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        return number(expr.value);
+    }
+
+    @Override
+    public Object visitBooleanLiteralExpr(Expr.BooleanLiteral expr) {
+        return expr.value ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    @Override
+    public Object visitStringLiteralExpr(Expr.StringLiteral expr) {
+        return expr.value;
+    }
+
+    @Override
+    public Object visitNullLiteralExpr(Expr.NullLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExpr(Expr.Unary expr) {
+        return unary(expr, operand(expr.right));
+    }
+
+    @Override
+    public Object visitVariableExpr(Expr.Variable expr) {
+        int distance = expr.getDepth(); // Not the recursion depth
+        Object value = distance < 0 ? Environment.UNDEFINED : environment.get(distance, expr.getSlot());
+        if (value == Environment.UNDEFINED) {
+            value = bindings.get(expr.name);
+            if (value == null && !bindings.containsKey(expr.name)) {
+                throw new RuntimeError(Position.line(expr.position), "Undefined variable '" + expr.name + "'.");
+            }
+        }
+        if (value instanceof Number) return number(((Number) value).doubleValue());
+        return value;
+    }
+
+    @Override
+    public Object visitAssignExpr(Expr.Assign expr) {
+        return assign(expr, operand(expr.value));
+    }
+
+    // ===================
+    // Deep Expressions
+    // ===================
+
+    /**
+     * Evaluates an operand of the node being visited, recursively unless that is already
+     * {@link #MAX_RECURSION} levels deep.
+     */
+    private Object operand(Expr expr) {
+        if (depth == MAX_RECURSION) return evaluateIteratively(expr);
+        depth++;
+        Object value = expr.accept(this);
+        depth--;
+        return value;
+    }
+
+    /**
+     * Evaluates a subtree in post-order with explicit stacks. Only leaves are visited
+     * here, so this never recurses back into {@link #operand}.
+     */
+    private Object evaluateIteratively(Expr root) {
+        discardOperands(); // Left behind if the previous evaluation failed
+
+        push(root, false);
+        while (pendingCount > 0) {
+            int top = --pendingCount;
+            Expr node = pending[top];
+            boolean operandsReady = ready[top];
+            pending[top] = null;
+
+            if (node instanceof Expr.Binary) {
+                Expr.Binary binary = (Expr.Binary) node;
+                if (operandsReady) {
+                    Object right = pop();
+                    double rightNumber = number;
+                    Object left = pop();
+                    pushValue(binary(binary, left, number, right, rightNumber));
+                } else {
+                    push(node, true);
+                    push(binary.right, false);
+                    push(binary.left, false);
+                }
+            } else if (node instanceof Expr.Unary) {
+                if (operandsReady) {
+                    pushValue(unary((Expr.Unary) node, pop()));
+                } else {
+                    push(node, true);
+                    push(((Expr.Unary) node).right, false);
+                }
+            } else if (node instanceof Expr.Grouping) {
+                push(((Expr.Grouping) node).expression, false);
+            } else if (node instanceof Expr.Assign) {
+                if (operandsReady) {
+                    pushValue(assign((Expr.Assign) node, pop()));
+                } else {
+                    push(node, true);
+                    push(((Expr.Assign) node).value, false);
+                }
+            } else {
+                pushValue(node.accept(this));
+            }
+        }
+        return pop();
+    }
+
+    // ===================
+    // Operators
+    // ===================
+
+    private Object binary(Expr.Binary expr, Object left, double leftNumber, Object right, double rightNumber) {
+        switch (expr.operator) {
+            case PLUS:
+                if (left == NUMBER && right == NUMBER) {
+                    return number(leftNumber + rightNumber);
+                }
+                if (left instanceof String && right instanceof String) {
+                    return (String) left + right;
+                }
+                throw new RuntimeError(Position.line(expr.position), "Operands must be two numbers or two strings.");
+            case MINUS:
+                checkNumberOperands(expr.position, left, right);
+                return number(leftNumber - rightNumber);
+            case STAR:
+                checkNumberOperands(expr.position, left, right);
+                return number(leftNumber * rightNumber);
+            case SLASH:
+                checkNumberOperands(expr.position, left, right);
+                return number(leftNumber / rightNumber);
+            case GREATER:
+                checkNumberOperands(expr.position, left, right);
+                return leftNumber > rightNumber;
+            case GREATER_EQUAL:
+                checkNumberOperands(expr.position, left, right);
+                return leftNumber >= rightNumber;
+            case LESS:
+                checkNumberOperands(expr.position, left, right);
+                return leftNumber < rightNumber;
+            case LESS_EQUAL:
+                checkNumberOperands(expr.position, left, right);
+                return leftNumber <= rightNumber;
+            case EQUAL_EQUAL:
+                return isEqual(left, leftNumber, right, rightNumber);
+            case BANG_EQUAL:
+                return !isEqual(left, leftNumber, right, rightNumber);
+        }
+
+        throw new RuntimeError(Position.line(expr.position), "Unknown binary operator.");
+    }
+
+    /**
+     * @param right the operand, with {@link #number} set if it is {@link #NUMBER}.
+     */
+    private Object unary(Expr.Unary expr, Object right) {
+        switch (expr.operator) {
+            case MINUS:
+                checkNumberOperand(expr.position, right);
+                return number(-number);
+            case BANG:
+                return !isTruthy(right);
+        }
+
+        throw new RuntimeError(Position.line(expr.position), "Unknown unary operator.");
+    }
+
+    /**
+     * @param value the assigned value, with {@link #number} set if it is {@link #NUMBER}.
+     */
+    private Object assign(Expr.Assign expr, Object value) {
+        int distance = expr.getDepth(); // Not the recursion depth
+        if (distance < 0 || environment.get(distance, expr.getSlot()) == Environment.UNDEFINED) {
+            throw new RuntimeError(Position.line(expr.position), "Undefined variable '" + expr.name + "'.");
+        }
+        environment.set(distance, expr.getSlot(), value == NUMBER ? Double.valueOf(number) : value);
+        return value; // number is still set if the value is a number
+    }
+
+    // ===================
+    // Helpers
+    // ===================
+
+    private Object number(double value) {
+        number = value;
+        return NUMBER;
+    }
+
+    private void push(Expr expr, boolean operandsReady) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+            ready = Arrays.copyOf(ready, pendingCount * 2);
+        }
+        pending[pendingCount] = expr;
+        ready[pendingCount] = operandsReady;
+        pendingCount++;
+    }
+
+    private void pushValue(Object value) {
+        if (valueCount == values.length) {
+            values = Arrays.copyOf(values, valueCount * 2);
+            numbers = Arrays.copyOf(numbers, valueCount * 2);
+        }
+        values[valueCount] = value;
+        if (value == NUMBER) numbers[valueCount] = number;
+        valueCount++;
+    }
+
+    /**
+     * @return the top value, with {@link #number} set if it is {@link #NUMBER}.
+     */
+    private Object pop() {
+        int top = --valueCount;
+        Object value = values[top];
+        values[top] = null;
+        number = numbers[top];
+        return value;
+    }
+
+    private void discardOperands() {
+        Arrays.fill(pending, 0, pendingCount, null);
+        Arrays.fill(values, 0, valueCount, null);
+        pendingCount = 0;
+        valueCount = 0;
+    }
+
+    private void checkNumberOperand(long position, Object operand) {
+        if (operand == NUMBER) return;
+        throw new RuntimeError(Position.line(position), "Operand must be a number.");
+    }
+
+    private void checkNumberOperands(long position, Object left, Object right) {
+        if (left == NUMBER && right == NUMBER) return;
+        throw new RuntimeError(Position.line(position), "Operands must be numbers.");
+    }
+
+    /**
+     * Null and false are falsey; everything else, including every number, is truthy.
+     */
+    private boolean isTruthy(Object value) {
+        if (value == null) return false;
+        if (value instanceof Boolean) return (Boolean) value;
+        return true;
+    }
+
+    /**
+     * Same semantics as {@code Objects.equals} on boxed values, without boxing numbers.
+     */
+    private boolean isEqual(Object left, double leftNumber, Object right, double rightNumber) {
+        if (left == NUMBER || right == NUMBER) {
+            return left == right
+                    && Double.doubleToLongBits(leftNumber) == Double.doubleToLongBits(rightNumber);
+        }
+        if (left == null) return right == null;
+        return left.equals(right);
+    }
+
+    /**
+     * Converts a value into the text printed for it, dropping ".0" from integral numbers.
+     *
+     * @param value the value to print.
+     * @return the printable representation of the value.
+     */
+    public static String stringify(Object value) {
+        if (value == null) return "null";
+
+        if (value instanceof Double) {
+            String text = value.toString();
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+            return text;
+        }
+
+        return value.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package crumble.interpreter;
+
+import crumble.Expr;
+import crumble.Stmt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static pass that runs between the parser and the {@link Interpreter} and works out
+ * where each variable lives, so that reading one at run time is two array loads rather
+ * than a name lookup in every enclosing scope.
+ *
+ * Every scope gets a frame with one slot per variable it declares, numbered in
+ * declaration order. A variable is annotated with how many scopes out its declaration
+ * is ({@code depth}) and its slot there; one that no scope declares keeps a depth of -1
+ * and is looked up by name in the interpreter's bindings. Declaring a name again in the
+ * same scope reuses its slot, and a name is only visible after its declaration, so
+ * {@code var a = a;} still reads the outer {@code a}.
+ *
+ * The outermost scope outlives each call, so a session can resolve its input piece by
+ * piece and later pieces see the globals of earlier ones. A call that fails declares
+ * none of its globals. Global slots are only meaningful to the resolver that handed
+ * them out, so every statement is claimed by the resolver that visits it and every
+ * annotation can be written only once; resolving a tree a second time is an error.
+ * The class is public only so the syntax tree can name it as the owner of its
+ * annotations; nothing outside this package can create or run one.
+ *
+ * The walk keeps its own stack of nodes still to visit rather than recursing, so
+ * blocks and expressions nested to any depth resolve without overflowing the Java
+ * stack.
+ */
+public final class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    // Slot of each name, innermost scope last; the first is the global scope.
+    private final List<Map<String, Integer>> scopes = new ArrayList<>();
+
+    // Nodes still to visit. A block or var declaration marked ready has had everything
+    // in it resolved, and only closing its scope or declaring its name is left.
+    private Object[] pending = new Object[16];
+    private boolean[] ready = new boolean[16];
+    private int pendingCount = 0;
+
+    Resolver() {
+        scopes.add(new HashMap<>());
+    }
+
+    /**
+     * @return how many slots the global frame needs for everything resolved so far.
+     */
+    int globalSlots() {
+        return scopes.get(0).size();
+    }
+
+    /**
+     * @throws IllegalStateException if a statement has already been resolved, by this
+     *                               or another resolver.
+     */
+    void resolve(List<Stmt> statements) {
+        int globals = scopes.get(0).size();
+        boolean resolved = false;
+        try {
+            pushAll(statements);
+            while (pendingCount > 0) {
+                int top = --pendingCount;
+                Object node = pending[top];
+                pending[top] = null;
+                if (node instanceof Expr) {
+                    ((Expr) node).accept(this);
+                } else if (!ready[top]) {
+                    Stmt stmt = (Stmt) node;
+                    stmt.claim(this);
+                    stmt.accept(this);
+                } else if (node instanceof Stmt.Block) {
+                    ((Stmt.Block) node).annotate(this, scopes.remove(scopes.size() - 1).size());
+                } else {
+                    declare((Stmt.Var) node);
+                }
+            }
+            resolved = true;
+        } finally {
+            if (!resolved) {
+                // Left behind by a node that was already resolved. Globals declared by
+                // this call are forgotten, as the interpreter never reserved their slots.
+                Arrays.fill(pending, 0, pendingCount, null);
+                pendingCount = 0;
+                while (scopes.size() > 1) scopes.remove(scopes.size() - 1);
+                scopes.get(0).values().removeIf(slot -> slot >= globals);
+            }
+        }
+    }
+
+    // ===================
+    // Statement Visitors
+    // ===================
+
+    // Each visitor pushes what it contains so that it is resolved in source order.
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        scopes.add(new HashMap<>());
+        push(stmt, true);
+        pushAll(stmt.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        push(stmt.expression, false);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        push(stmt.expression, false);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        push(stmt, true); // The name is declared after the initializer is resolved
+        if (stmt.initializer != null) push(stmt.initializer, false);
+        return null;
+    }
+
+    // ===================
+    // Expression Visitors
+    // ===================
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        push(expr.right, false);
+        push(expr.left, false);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        push(expr.expression, false);
+        return null;
+    }
+
+    @Override
+    public Void visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitBooleanLiteralExpr(Expr.BooleanLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitStringLiteralExpr(Expr.StringLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitNullLiteralExpr(Expr.NullLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        push(expr.right, false);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        int depth = depthOf(expr.name);
+        if (depth >= 0) expr.annotate(this, depth, slotOf(expr.name, depth));
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        int depth = depthOf(expr.name); // Expressions declare nothing, so the value can wait
+        if (depth >= 0) expr.annotate(this, depth, slotOf(expr.name, depth));
+        push(expr.value, false);
+        return null;
+    }
+
+    // ===================
+    // Helpers
+    // ===================
+
+    /**
+     * Gives a declared variable its slot in the innermost scope, reusing the slot of an
+     * earlier declaration of the same name there.
+     */
+    private void declare(Stmt.Var stmt) {
+        Map<String, Integer> scope = scopes.get(scopes.size() - 1);
+        Integer slot = scope.get(stmt.name);
+        if (slot == null) {
+            slot = scope.size();
+            scope.put(stmt.name, slot);
+        }
+        stmt.annotate(this, slot);
+    }
+
+    /**
+     * Pushes statements so that the first of them is visited first.
+     */
+    private void pushAll(List<Stmt> statements) {
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            push(statements.get(i), false);
+        }
+    }
+
+    private void push(Object node, boolean isReady) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+            ready = Arrays.copyOf(ready, pendingCount * 2);
+        }
+        pending[pendingCount] = node;
+        ready[pendingCount] = isReady;
+        pendingCount++;
+    }
+
+    /**
+     * @return how many scopes out the innermost declaration of the name is, or -1.
+     */
+    private int depthOf(String name) {
+        int innermost = scopes.size() - 1;
+        for (int i = innermost; i >= 0; i--) {
+            if (scopes.get(i).containsKey(name)) return innermost - i;
+        }
+        return -1;
+    }
+
+    private int slotOf(String name, int depth) {
+        return scopes.get(scopes.size() - 1 - depth).get(name);
+    }
+}
@@ -0,0 +1,20 @@
+package crumble.interpreter;
+
+/**
+ * Exception raised when a well-formed expression cannot be evaluated,
+ * e.g. when an arithmetic operator is applied to a non-number.
+ */
+public class RuntimeError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    public RuntimeError(int line, String message) {
+        super(message);
+        this.line = line;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,386 @@
+package crumble.optimizer;
+
+import crumble.Expr;
+import crumble.Stmt;
+import crumble.interpreter.Interpreter;
+import crumble.interpreter.RuntimeError;
+import crumble.scanner.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Simplifies an {@link Expr} tree before it is compiled or evaluated.
+ *
+ * <ul>
+ *   <li>Binary and Unary nodes whose operands are all literals are replaced by their
+ *       value, e.g. {@code 60 * 60 * 24} becomes {@code 86400}. The value comes from the
+ *       {@link Interpreter}, so folding can never change a result. A node that would fail
+ *       at run time, such as {@code -"a"}, is left alone so the error still happens
+ *       there.</li>
+ *   <li>Grouping nodes are dropped; the tree shape already records the grouping.</li>
+ *   <li>{@code x * 1}, {@code 1 * x}, {@code x / 1} and {@code x - 0} become {@code x}
+ *       when {@code x} is known to be a number, and {@code !!x} becomes {@code x} when
+ *       {@code x} is known to be a Boolean. These hold for every double, including NaN
+ *       and -0; {@code x + 0} does not, as {@code -0 + 0} is {@code 0}.</li>
+ * </ul>
+ *
+ * The visitor methods expect the folded children of their node on an explicit stack,
+ * which {@link #fold} fills in post-order, so deep trees do not overflow the Java stack.
+ * Whether each folded child is known to produce a number is kept alongside it, so the
+ * identities above need no walk of their own. Statements are folded expression by
+ * expression, with nested blocks kept on a stack of their own, and must be folded
+ * before they are resolved: folding builds new nodes, which carry no resolver slots.
+ * Counters of what was removed accumulate over every call. An instance must not be
+ * shared between threads.
+ */
+public class ConstantFolder implements Expr.Visitor<Expr> {
+    /** Returned by {@link #valueOf} for a node that fails at run time. */
+    private static final Object FAILS = new Object();
+
+    private final Interpreter interpreter = new Interpreter();
+
+    // Nodes still to visit. A node marked ready has had its children folded onto results.
+    private Expr[] pending = new Expr[16];
+    private boolean[] ready = new boolean[16];
+    private int pendingCount = 0;
+    private Expr[] results = new Expr[16];
+    private boolean[] numeric = new boolean[16]; // Whether each result is known to be a number
+    private int resultCount = 0;
+
+    // Whether the tree just popped, or about to be returned by a visit, is known to
+    // produce a number whenever it produces a value at all. Operators that can fail
+    // still count: the failure happens either way.
+    private boolean isNumeric;
+
+    private long constantsFolded = 0;
+    private long groupingsRemoved = 0;
+    private long identitiesApplied = 0;
+    private long nodesRemoved = 0;
+
+    /**
+     * Returns a tree that evaluates to the same value, or fails with the same error,
+     * as the given one. Nodes that cannot be simplified are reused rather than copied.
+     *
+     * @param expression the tree to simplify.
+     * @return the simplified tree.
+     */
+    public Expr fold(Expr expression) {
+        push(expression, false);
+        while (pendingCount > 0) {
+            int top = --pendingCount;
+            Expr expr = pending[top];
+            pending[top] = null;
+
+            if (ready[top] || isLiteral(expr) || expr instanceof Expr.Variable) {
+                Expr folded = expr.accept(this);
+                if (resultCount == results.length) {
+                    results = Arrays.copyOf(results, resultCount * 2);
+                    numeric = Arrays.copyOf(numeric, resultCount * 2);
+                }
+                results[resultCount] = folded;
+                numeric[resultCount] = isNumeric;
+                resultCount++;
+            } else if (expr instanceof Expr.Binary) {
+                push(expr, true);
+                push(((Expr.Binary) expr).right, false);
+                push(((Expr.Binary) expr).left, false);
+            } else if (expr instanceof Expr.Unary) {
+                push(expr, true);
+                push(((Expr.Unary) expr).right, false);
+            } else if (expr instanceof Expr.Assign) {
+                push(expr, true);
+                push(((Expr.Assign) expr).value, false);
+            } else {
+                push(expr, true);
+                push(((Expr.Grouping) expr).expression, false);
+            }
+        }
+
+        return pop();
+    }
+
+    /**
+     * Folds every expression in the statements, including those in nested blocks. The
+     * statements are not changed; statements that need no folding are reused.
+     *
+     * @param statements statements that have not been resolved yet.
+     * @return the folded statements, in the same order.
+     */
+    public List<Stmt> fold(List<Stmt> statements) {
+        // The statements of each block being folded, innermost last, with the folded
+        // statements so far and the index of the next one to fold.
+        List<List<Stmt>> sources = new ArrayList<>();
+        List<List<Stmt>> folded = new ArrayList<>();
+        int[] next = new int[16];
+        sources.add(statements);
+        folded.add(new ArrayList<>(statements.size()));
+
+        while (true) {
+            int top = sources.size() - 1;
+            List<Stmt> source = sources.get(top);
+            if (next[top] < source.size()) {
+                Stmt stmt = source.get(next[top]++);
+                if (stmt instanceof Stmt.Block) {
+                    if (top + 1 == next.length) next = Arrays.copyOf(next, next.length * 2);
+                    List<Stmt> inner = ((Stmt.Block) stmt).statements;
+                    next[top + 1] = 0;
+                    sources.add(inner);
+                    folded.add(new ArrayList<>(inner.size()));
+                } else {
+                    folded.get(top).add(foldStatement(stmt));
+                }
+                continue;
+            }
+
+            sources.remove(top);
+            List<Stmt> block = folded.remove(top);
+            if (top == 0) return block;
+            folded.get(top - 1).add(new Stmt.Block(block));
+        }
+    }
+
+    private Stmt foldStatement(Stmt stmt) {
+        if (stmt instanceof Stmt.Expression) {
+            Expr expression = ((Stmt.Expression) stmt).expression;
+            Expr simplified = fold(expression);
+            return simplified == expression ? stmt : new Stmt.Expression(simplified);
+        }
+        if (stmt instanceof Stmt.Print) {
+            Expr expression = ((Stmt.Print) stmt).expression;
+            Expr simplified = fold(expression);
+            return simplified == expression ? stmt : new Stmt.Print(simplified);
+        }
+        Stmt.Var var = (Stmt.Var) stmt;
+        if (var.initializer == null) return var;
+        Expr simplified = fold(var.initializer);
+        return simplified == var.initializer ? var : new Stmt.Var(var.name, var.position, simplified);
+    }
+
+    public long getConstantsFolded() {
+        return constantsFolded;
+    }
+
+    public long getGroupingsRemoved() {
+        return groupingsRemoved;
+    }
+
+    public long getIdentitiesApplied() {
+        return identitiesApplied;
+    }
+
+    /**
+     * @return how many nodes the folded trees have fewer than the original ones.
+     */
+    public long getNodesRemoved() {
+        return nodesRemoved;
+    }
+
+    @Override
+    public String toString() {
+        return "Removed " + nodesRemoved + " nodes: " + constantsFolded + " constants folded, "
+                + groupingsRemoved + " groupings dropped, " + identitiesApplied + " identities applied";
+    }
+
+    // ===================
+    // Expression Visitors
+    // ===================
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr right = pop();
+        boolean rightNumeric = isNumeric;
+        Expr left = pop();
+        boolean leftNumeric = isNumeric;
+
+        if (isLiteral(left) && isLiteral(right)) {
+            Object value = valueOf(new Expr.Binary(left, expr.operator, expr.position, right));
+            if (value != FAILS) {
+                constantsFolded++;
+                nodesRemoved += 2;
+                return folded(value);
+            }
+        }
+
+        TokenType operator = expr.operator;
+        if (operator == TokenType.STAR && isNumber(left, 1) && rightNumeric) return identity(right);
+        if ((operator == TokenType.STAR || operator == TokenType.SLASH) && isNumber(right, 1) && leftNumeric) {
+            return identity(left);
+        }
+        if (operator == TokenType.MINUS && isNumber(right, 0) && leftNumeric) return identity(left);
+
+        isNumeric = operator == TokenType.MINUS || operator == TokenType.STAR || operator == TokenType.SLASH
+                || (operator == TokenType.PLUS && leftNumeric && rightNumeric);
+
+        if (left == expr.left && right == expr.right) return expr;
+        return new Expr.Binary(left, expr.operator, expr.position, right);
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        groupingsRemoved++;
+        nodesRemoved++;
+        return pop(); // isNumeric is the inner expression's
+    }
+
+    @Override
+    public Expr visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        isNumeric = true;
+        return expr;
+    }
+
+    @Override
+    public Expr visitBooleanLiteralExpr(Expr.BooleanLiteral expr) {
+        isNumeric = false;
+        return expr;
+    }
+
+    @Override
+    public Expr visitStringLiteralExpr(Expr.StringLiteral expr) {
+        isNumeric = false;
+        return expr;
+    }
+
+    @Override
+    public Expr visitNullLiteralExpr(Expr.NullLiteral expr) {
+        isNumeric = false;
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = pop();
+
+        if (isLiteral(right)) {
+            Object value = valueOf(new Expr.Unary(expr.operator, expr.position, right));
+            if (value != FAILS) {
+                constantsFolded++;
+                nodesRemoved++;
+                return folded(value);
+            }
+        }
+
+        if (expr.operator == TokenType.BANG && right instanceof Expr.Unary) {
+            Expr.Unary inner = (Expr.Unary) right;
+            if (inner.operator == TokenType.BANG && isBoolean(inner.right)) {
+                identitiesApplied++;
+                nodesRemoved += 2;
+                isNumeric = false;
+                return inner.right;
+            }
+        }
+
+        isNumeric = expr.operator == TokenType.MINUS;
+
+        if (right == expr.right) return expr;
+        return new Expr.Unary(expr.operator, expr.position, right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        isNumeric = false;
+        return expr;
+    }
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        Expr value = pop(); // isNumeric is the assigned value's
+        if (value == expr.value) return expr;
+        return new Expr.Assign(expr.name, expr.position, value);
+    }
+
+    // ===================
+    // Helpers
+    // ===================
+
+    /**
+     * @return the value of a literal-only node, or {@link #FAILS} if evaluating it fails.
+     */
+    private Object valueOf(Expr constant) {
+        try {
+            return interpreter.evaluate(constant);
+        } catch (RuntimeError error) {
+            return FAILS;
+        }
+    }
+
+    /**
+     * @return a literal-only node folded to its value.
+     */
+    private Expr folded(Object value) {
+        isNumeric = value instanceof Double;
+        return toLiteral(value);
+    }
+
+    /**
+     * @return the numeric operand of an operator that leaves it unchanged.
+     */
+    private Expr identity(Expr operand) {
+        identitiesApplied++;
+        nodesRemoved += 2; // The operator and the literal
+        isNumeric = true;
+        return operand;
+    }
+
+    private static boolean isLiteral(Expr expr) {
+        return expr instanceof Expr.NumberLiteral || expr instanceof Expr.BooleanLiteral
+                || expr instanceof Expr.StringLiteral || expr instanceof Expr.NullLiteral;
+    }
+
+    /**
+     * @return the literal node holding a value the Interpreter produced.
+     */
+    private static Expr toLiteral(Object value) {
+        if (value instanceof Double) return new Expr.NumberLiteral((Double) value);
+        if (value instanceof Boolean) return new Expr.BooleanLiteral((Boolean) value);
+        if (value instanceof String) return new Expr.StringLiteral((String) value);
+        return new Expr.NullLiteral();
+    }
+
+    private static boolean isNumber(Expr expr, double value) {
+        return expr instanceof Expr.NumberLiteral
+                && Double.compare(((Expr.NumberLiteral) expr).value, value) == 0; // -0 is not 0
+    }
+
+    /**
+     * Whether a folded tree is known to produce a Boolean whenever it produces a value.
+     */
+    private static boolean isBoolean(Expr expr) {
+        if (expr instanceof Expr.BooleanLiteral) return true;
+        if (expr instanceof Expr.Unary) return ((Expr.Unary) expr).operator == TokenType.BANG;
+        if (expr instanceof Expr.Binary) {
+            switch (((Expr.Binary) expr).operator) {
+                case GREATER:
+                case GREATER_EQUAL:
+                case LESS:
+                case LESS_EQUAL:
+                case EQUAL_EQUAL:
+                case BANG_EQUAL:
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private void push(Expr expr, boolean childrenFolded) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+            ready = Arrays.copyOf(ready, pendingCount * 2);
+        }
+        pending[pendingCount] = expr;
+        ready[pendingCount] = childrenFolded;
+        pendingCount++;
+    }
+
+    /**
+     * @return the most recent folded child, with {@link #isNumeric} set for it.
+     */
+    private Expr pop() {
+        int top = --resultCount;
+        Expr expr = results[top];
+        results[top] = null;
+        isNumeric = numeric[top];
+        return expr;
+    }
+}
@@ -0,0 +1,256 @@
+package crumble.parser;
+
+import crumble.Diagnostics;
+import crumble.Expr;
+import crumble.ExprArena;
+import crumble.scanner.Token;
+import crumble.scanner.TokenCursor;
+import crumble.scanner.TokenStream;
+import crumble.scanner.TokenType;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static crumble.scanner.TokenType.*;
+
+/**
+ * Operator-precedence parser that keeps pending operators and operands on explicit
+ * stacks instead of the Java call stack, so it builds the same trees as {@link Parser}
+ * for inputs nested millions of levels deep, e.g. {@code ((((1))))} or {@code - - - 1}.
+ *
+ * The parser alternates between expecting an operand, where it pushes prefix
+ * operators and opening parentheses, and expecting an operator, where it reduces
+ * everything on the stack that binds at least as tightly before pushing the new one.
+ *
+ * Besides Expr trees it can build straight into an {@link ExprArena} through
+ * {@link #parseInto}, so a huge expression never becomes one object per node.
+ */
+public class IterativeParser extends Parser {
+    // Kinds of pending entries on the operator stack.
+    private static final byte UNARY = 0;
+    private static final byte BINARY = 1;
+    private static final byte PAREN = 2;
+
+    // Binding power of each infix operator; 0 means "not an infix operator".
+    private static final int NONE = 0;
+    private static final int[] INFIX_PRECEDENCE = new int[TokenType.values().length];
+    static {
+        INFIX_PRECEDENCE[EQUAL_EQUAL.ordinal()] = 1;
+        INFIX_PRECEDENCE[BANG_EQUAL.ordinal()] = 1;
+        INFIX_PRECEDENCE[GREATER.ordinal()] = 2;
+        INFIX_PRECEDENCE[GREATER_EQUAL.ordinal()] = 2;
+        INFIX_PRECEDENCE[LESS.ordinal()] = 2;
+        INFIX_PRECEDENCE[LESS_EQUAL.ordinal()] = 2;
+        INFIX_PRECEDENCE[PLUS.ordinal()] = 3;
+        INFIX_PRECEDENCE[MINUS.ordinal()] = 3;
+        INFIX_PRECEDENCE[STAR.ordinal()] = 4;
+        INFIX_PRECEDENCE[SLASH.ordinal()] = 4;
+    }
+
+    // Operator stack: kind, operator token and precedence of each pending entry.
+    private byte[] kinds = new byte[16];
+    private Token[] operators = new Token[16];
+    private int[] precedences = new int[16];
+    private int operatorCount = 0;
+    private int openParens = 0;
+
+    // Operand stack: Expr trees, or node IDs while parsing into an arena.
+    private Expr[] operands = new Expr[16];
+    private int[] nodes = new int[16];
+    private int operandCount = 0;
+    private ExprArena arena; // Set while parseInto() runs
+
+    public IterativeParser(List<Token> tokens) {
+        super(tokens);
+    }
+
+    public IterativeParser(TokenStream tokens) {
+        super(tokens);
+    }
+
+    public IterativeParser(TokenCursor tokens) {
+        super(tokens);
+    }
+
+    public IterativeParser(TokenCursor tokens, Diagnostics diagnostics) {
+        super(tokens, diagnostics);
+    }
+
+    /**
+     * Parses the tokens into nodes of an arena instead of Expr objects. Errors are
+     * reported and recovered from as by {@link #parse()}.
+     *
+     * @param arena the arena to add the nodes to.
+     * @return the ID of the root node, or -1 if parsing fails.
+     */
+    public int parseInto(ExprArena arena) {
+        this.arena = arena;
+        try {
+            expression();
+            return nodes[0];
+        } catch (ParseError error) {
+            synchronize(); // Attempt to recover.
+            return -1;
+        } finally {
+            this.arena = null;
+        }
+    }
+
+    /**
+     * Parses one expression. While parsing into an arena the tree is left in
+     * {@code nodes[0]} and this returns null.
+     */
+    @Override
+    Expr expression() {
+        // Drop anything left behind by an expression that failed to parse.
+        Arrays.fill(operators, 0, operatorCount, null);
+        Arrays.fill(operands, 0, operandCount, null);
+        operatorCount = 0;
+        operandCount = 0;
+        openParens = 0;
+
+        while (true) {
+            // Expecting an operand: take prefix operators and '(' until a primary.
+            while (true) {
+                TokenType type = tokens.peekType();
+                if (type == BANG || type == MINUS) {
+                    tokens.advance();
+                    pushOperator(UNARY, previous(), 0);
+                } else if (type == LEFT_PAREN) {
+                    tokens.advance();
+                    pushOperator(PAREN, null, 0);
+                    openParens++;
+                } else {
+                    break;
+                }
+            }
+            primary();
+
+            // Expecting an operator: close parentheses until a binary operator or the end.
+            while (true) {
+                TokenType type = tokens.peekType();
+                int precedence = INFIX_PRECEDENCE[type.ordinal()];
+                if (precedence != NONE) {
+                    reduceWhileAtLeast(precedence);
+                    tokens.advance();
+                    pushOperator(BINARY, previous(), precedence);
+                    break;
+                }
+
+                if (openParens == 0) {
+                    reduceWhileAtLeast(NONE);
+                    Expr result = operands[--operandCount];
+                    operands[operandCount] = null;
+                    return result;
+                }
+
+                reduceWhileAtLeast(NONE);
+                consume(RIGHT_PAREN, "Expect ')' after expression.");
+                operatorCount--; // The PAREN entry
+                openParens--;
+                if (arena != null) {
+                    nodes[operandCount - 1] = arena.grouping(nodes[operandCount - 1]);
+                } else {
+                    operands[operandCount - 1] = new Expr.Grouping(operands[operandCount - 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes the literal or variable at the current token onto the operand stack.
+     */
+    private void primary() {
+        TokenType type = tokens.peekType();
+        switch (type) {
+            case FALSE:
+            case TRUE:
+            case NULL:
+            case NUMBER:
+            case STRING:
+            case IDENTIFIER:
+                tokens.advance();
+                break;
+            default:
+                throw error(peek(), "Expect expression.");
+        }
+
+        if (operandCount == operands.length) {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+            nodes = Arrays.copyOf(nodes, operandCount * 2);
+        }
+        if (arena != null) {
+            nodes[operandCount++] = arenaLiteral(type);
+        } else {
+            operands[operandCount++] = literal(type);
+        }
+    }
+
+    private Expr literal(TokenType type) {
+        switch (type) {
+            case FALSE: return new Expr.BooleanLiteral(false);
+            case TRUE: return new Expr.BooleanLiteral(true);
+            case NULL: return new Expr.NullLiteral();
+            case NUMBER: return new Expr.NumberLiteral(previous().getNumber());
+            case STRING: return new Expr.StringLiteral((String) previous().getLiteral());
+            default: return new Expr.Variable(previous().getLexeme(), previous().getPosition());
+        }
+    }
+
+    private int arenaLiteral(TokenType type) {
+        switch (type) {
+            case FALSE: return arena.literal(false);
+            case TRUE: return arena.literal(true);
+            case NULL: return arena.literal(null);
+            case NUMBER: return arena.number(previous().getNumber());
+            case STRING: return arena.string((String) previous().getLiteral());
+            default: return arena.variable(previous().getLexeme(), previous().getPosition());
+        }
+    }
+
+    /**
+     * Pops every pending operator that binds at least as tightly as
+     * {@code precedence}, stopping at an open parenthesis. Unary operators always bind
+     * tighter than binary ones, and equal precedence reduces because every binary
+     * operator is left-associative.
+     */
+    private void reduceWhileAtLeast(int precedence) {
+        while (operatorCount > 0) {
+            int top = operatorCount - 1;
+            byte kind = kinds[top];
+            if (kind == PAREN) return;
+            if (kind == BINARY && precedences[top] < precedence) return;
+
+            operatorCount--;
+            Token operator = operators[top];
+            operators[top] = null;
+            if (arena != null) {
+                if (kind == UNARY) {
+                    nodes[operandCount - 1] = arena.unary(operator.getType(), operator.getPosition(), nodes[operandCount - 1]);
+                } else {
+                    int right = nodes[--operandCount];
+                    nodes[operandCount - 1] = arena.binary(nodes[operandCount - 1], operator.getType(), operator.getPosition(), right);
+                }
+            } else if (kind == UNARY) {
+                operands[operandCount - 1] = new Expr.Unary(operator.getType(), operator.getPosition(), operands[operandCount - 1]);
+            } else {
+                Expr right = operands[--operandCount];
+                operands[operandCount - 1] = new Expr.Binary(operands[operandCount - 1], operator.getType(), operator.getPosition(), right);
+                operands[operandCount] = null;
+            }
+        }
+    }
+
+    private void pushOperator(byte kind, Token operator, int precedence) {
+        if (operatorCount == kinds.length) {
+            int capacity = operatorCount * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            operators = Arrays.copyOf(operators, capacity);
+            precedences = Arrays.copyOf(precedences, capacity);
+        }
+        kinds[operatorCount] = kind;
+        operators[operatorCount] = operator;
+        precedences[operatorCount] = precedence;
+        operatorCount++;
+    }
+}
@@ -0,0 +1,38 @@
+package crumble.parser;
+
+import crumble.Diagnostic;
+import crumble.Expr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of {@link Parser#parseAll()}: every expression that parsed, in source order,
+ * and every error found along the way, including the scanner's when it shared the
+ * parser's {@link crumble.Diagnostics}.
+ */
+public final class ParseResult {
+    private final List<Expr> expressions;
+    private final List<Diagnostic> diagnostics;
+
+    ParseResult(List<Expr> expressions, List<Diagnostic> diagnostics) {
+        this.expressions = Collections.unmodifiableList(expressions);
+        this.diagnostics = Collections.unmodifiableList(new ArrayList<>(diagnostics));
+    }
+
+    /**
+     * @return the expressions that parsed; those with errors are left out.
+     */
+    public List<Expr> getExpressions() {
+        return expressions;
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public boolean hasErrors() {
+        return !diagnostics.isEmpty();
+    }
+}
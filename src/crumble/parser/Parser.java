@@ -1,33 +1,72 @@
 package crumble.parser;
 
-import crumble.Crumble;
+import crumble.Diagnostics;
 import crumble.Expr;
 import crumble.scanner.Token;
+import crumble.scanner.TokenCursor;
+import crumble.scanner.TokenStream;
 import crumble.scanner.TokenType;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static crumble.scanner.TokenType.*;
 
+/**
+ * Recursive-descent parser with one method per precedence level. Subclasses in this
+ * package replace {@link #expression()} with other strategies and reuse the token
+ * handling and error recovery here; this class stays as the reference they are
+ * checked against.
+ */
 public class Parser {
     /**
      * Exception for parse errors that stops further parsing and triggers recovery.
+     * It is thrown once per syntax error and always caught here, so it skips filling
+     * in a stack trace.
      */
-    private static class ParseError extends RuntimeException {
+    static class ParseError extends RuntimeException {
         ParseError(String message) {
-            super(message);
+            super(message, null, false, false);
         }
     }
 
-    private final List<Token> tokens;
-    private int current = 0; // Start at 0 to process the first token immediately.
+    final TokenCursor tokens;
+    private final Diagnostics diagnostics;
 
     public Parser(List<Token> tokens) {
+        this(TokenCursor.of(tokens));
+    }
+
+    public Parser(TokenStream tokens) {
+        this(tokens.cursor());
+    }
+
+    public Parser(TokenCursor tokens) {
+        this(tokens, new Diagnostics());
+    }
+
+    /**
+     * Creates a parser that records syntax errors into an existing context, e.g. the one
+     * of the scanner producing the tokens.
+     *
+     * @param tokens      the tokens to parse.
+     * @param diagnostics where to record errors.
+     */
+    public Parser(TokenCursor tokens, Diagnostics diagnostics) {
         this.tokens = tokens;
+        this.diagnostics = diagnostics;
     }
 
     /**
-     * Parses the tokens into an expression syntax tree.
+     * @return the errors found so far, including any recorded before this parser ran.
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Parses the tokens into an expression syntax tree. Errors are recorded in
+     * {@link #getDiagnostics()}.
      *
      * @return the root of the syntax tree or null if parsing fails.
      */
@@ -40,33 +79,49 @@ public class Parser {
         }
     }
 
+    /**
+     * Parses a whole source: expressions separated by semicolons, the last one optionally
+     * followed by one. A syntax error does not stop parsing; the parser skips to the next
+     * statement boundary and carries on, so one pass finds every error. Errors are
+     * returned rather than reported.
+     *
+     * @return the expressions that parsed and every error in {@link #getDiagnostics()}.
+     */
+    public ParseResult parseAll() {
+        List<Expr> expressions = new ArrayList<>();
+        while (!isAtEnd()) {
+            try {
+                Expr expr = expression();
+                if (!isAtEnd()) consume(SEMICOLON, "Expect ';' after expression.");
+                expressions.add(expr);
+            } catch (ParseError error) {
+                synchronize();
+            }
+        }
+        return new ParseResult(expressions, diagnostics.getErrors());
+    }
+
     // ===================
     // Token Manipulation
     // ===================
 
-    private Token next() {
-        if (current >= tokens.size()) {
-            throw new ParseError("Unexpected end of input.");
-        }
-        return tokens.get(current++);
-    }
-
-    private Token peek() {
-        if (isAtEnd()) {
-            throw new ParseError("No token to peek.");
-        }
-        return tokens.get(current);
+    /**
+     * @return the current token, which is EOF once the input is exhausted.
+     */
+    Token peek() {
+        return tokens.peek();
     }
 
-    private Token previous() {
-        if (current <= 0) {
+    Token previous() {
+        Token token = tokens.previous();
+        if (token == null) {
             throw new ParseError("No previous token available.");
         }
-        return tokens.get(current - 1);
+        return token;
     }
 
-    private boolean isAtEnd() {
-        return current >= tokens.size() || tokens.get(current).getType() == EOF;
+    boolean isAtEnd() {
+        return tokens.peekType() == EOF;
     }
 
     /**
@@ -75,10 +130,11 @@ public class Parser {
      * @param types the token types to check.
      * @return true if a match was found and the parser advanced, false otherwise.
      */
-    private boolean conditionalAdvance(TokenType... types) {
+    boolean conditionalAdvance(TokenType... types) {
+        TokenType current = tokens.peekType();
         for (TokenType type : types) {
-            if (!isAtEnd() && peek().getType() == type) {
-                next();
+            if (current == type && current != EOF) {
+                tokens.advance();
                 return true;
             }
         }
@@ -91,9 +147,9 @@ public class Parser {
      * @param expected the expected token type.
      * @param message the error message if the token does not match.
      */
-    private void consume(TokenType expected, String message) {
-        if (!isAtEnd() && peek().getType() == expected) {
-            next();
+    void consume(TokenType expected, String message) {
+        if (!isAtEnd() && tokens.peekType() == expected) {
+            tokens.advance();
         } else {
             throw error(peek(), message);
         }
@@ -103,7 +159,7 @@ public class Parser {
     // Expression Parsing
     // ===================
 
-    private Expr expression() {
+    Expr expression() {
         return equality();
     }
 
@@ -113,7 +169,7 @@ public class Parser {
         while (conditionalAdvance(EQUAL_EQUAL, BANG_EQUAL)) {
             Token operator = previous();
             Expr right = comparison();
-            expr = new Expr.Binary(expr, operator, right);
+            expr = new Expr.Binary(expr, operator.getType(), operator.getPosition(), right);
         }
 
         return expr;
@@ -125,7 +181,7 @@ public class Parser {
         while (conditionalAdvance(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
             Token operator = previous();
             Expr right = term();
-            expr = new Expr.Binary(expr, operator, right);
+            expr = new Expr.Binary(expr, operator.getType(), operator.getPosition(), right);
         }
 
         return expr;
@@ -137,7 +193,7 @@ public class Parser {
         while (conditionalAdvance(MINUS, PLUS)) {
             Token operator = previous();
             Expr right = factor();
-            expr = new Expr.Binary(expr, operator, right);
+            expr = new Expr.Binary(expr, operator.getType(), operator.getPosition(), right);
         }
 
         return expr;
@@ -149,7 +205,7 @@ public class Parser {
         while (conditionalAdvance(SLASH, STAR)) {
             Token operator = previous();
             Expr right = unary();
-            expr = new Expr.Binary(expr, operator, right);
+            expr = new Expr.Binary(expr, operator.getType(), operator.getPosition(), right);
         }
 
         return expr;
@@ -159,20 +215,19 @@ public class Parser {
         if (conditionalAdvance(BANG, MINUS)) {
             Token operator = previous();
             Expr right = unary();
-            return new Expr.Unary(operator, right);
+            return new Expr.Unary(operator.getType(), operator.getPosition(), right);
         }
 
         return primary();
     }
 
     private Expr primary() {
-        if (conditionalAdvance(FALSE)) return new Expr.Literal(false);
-        if (conditionalAdvance(TRUE)) return new Expr.Literal(true);
-        if (conditionalAdvance(NULL)) return new Expr.Literal(null);
-
-        if (conditionalAdvance(NUMBER, STRING)) {
-            return new Expr.Literal(previous().getLiteral());
-        }
+        if (conditionalAdvance(FALSE)) return new Expr.BooleanLiteral(false);
+        if (conditionalAdvance(TRUE)) return new Expr.BooleanLiteral(true);
+        if (conditionalAdvance(NULL)) return new Expr.NullLiteral();
+        if (conditionalAdvance(NUMBER)) return new Expr.NumberLiteral(previous().getNumber());
+        if (conditionalAdvance(STRING)) return new Expr.StringLiteral((String) previous().getLiteral());
+        if (conditionalAdvance(IDENTIFIER)) return new Expr.Variable(previous().getLexeme(), previous().getPosition());
 
         if (conditionalAdvance(LEFT_PAREN)) {
             Expr expr = expression();
@@ -188,27 +243,27 @@ public class Parser {
     // ===================
 
     /**
-     * Generates a parse error for the given token and message.
+     * Records a parse error for the given token and message.
      *
      * @param token the token that caused the error.
      * @param message the error message.
      * @return a ParseError exception.
      */
-    private ParseError error(Token token, String message) {
-        Crumble.error(token, message);
+    ParseError error(Token token, String message) {
+        diagnostics.error(token, message);
         return new ParseError(message);
     }
 
     /**
      * Attempts to recover from a parsing error by advancing to a safe state.
      */
-    private void synchronize() {
-        next();
+    void synchronize() {
+        tokens.advance();
 
         while (!isAtEnd()) {
             if (previous().getType() == SEMICOLON) return;
 
-            switch (peek().getType()) {
+            switch (tokens.peekType()) {
                 case CLASS:
                 case FUN:
                 case VAR:
@@ -220,7 +275,7 @@ public class Parser {
                     return;
             }
 
-            next();
+            tokens.advance();
         }
     }
 }
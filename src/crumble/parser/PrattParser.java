@@ -0,0 +1,125 @@
+package crumble.parser;
+
+import crumble.Diagnostics;
+import crumble.Expr;
+import crumble.scanner.Token;
+import crumble.scanner.TokenCursor;
+import crumble.scanner.TokenStream;
+import crumble.scanner.TokenType;
+
+import java.util.List;
+
+import static crumble.scanner.TokenType.*;
+
+/**
+ * Precedence-climbing (Pratt) parser that builds the same trees as {@link Parser}.
+ *
+ * Instead of one method per precedence level, binary operators are looked up in a
+ * table indexed by token type, so a literal is parsed in two calls no matter how many
+ * levels there are, and a new operator is a new table entry rather than a new method.
+ */
+public class PrattParser extends Parser {
+    // Binding power of each level; 0 means "not an infix operator".
+    private static final int NONE = 0;
+    private static final int EQUALITY = 1;   // == !=
+    private static final int COMPARISON = 2; // > >= < <=
+    private static final int TERM = 3;       // + -
+    private static final int FACTOR = 4;     // * /
+    private static final int UNARY = 5;      // ! -
+
+    private static final int[] INFIX_PRECEDENCE = new int[TokenType.values().length];
+    static {
+        INFIX_PRECEDENCE[EQUAL_EQUAL.ordinal()] = EQUALITY;
+        INFIX_PRECEDENCE[BANG_EQUAL.ordinal()] = EQUALITY;
+        INFIX_PRECEDENCE[GREATER.ordinal()] = COMPARISON;
+        INFIX_PRECEDENCE[GREATER_EQUAL.ordinal()] = COMPARISON;
+        INFIX_PRECEDENCE[LESS.ordinal()] = COMPARISON;
+        INFIX_PRECEDENCE[LESS_EQUAL.ordinal()] = COMPARISON;
+        INFIX_PRECEDENCE[PLUS.ordinal()] = TERM;
+        INFIX_PRECEDENCE[MINUS.ordinal()] = TERM;
+        INFIX_PRECEDENCE[STAR.ordinal()] = FACTOR;
+        INFIX_PRECEDENCE[SLASH.ordinal()] = FACTOR;
+    }
+
+    public PrattParser(List<Token> tokens) {
+        super(tokens);
+    }
+
+    public PrattParser(TokenStream tokens) {
+        super(tokens);
+    }
+
+    public PrattParser(TokenCursor tokens) {
+        super(tokens);
+    }
+
+    public PrattParser(TokenCursor tokens, Diagnostics diagnostics) {
+        super(tokens, diagnostics);
+    }
+
+    @Override
+    Expr expression() {
+        return parsePrecedence(EQUALITY);
+    }
+
+    /**
+     * Parses an operand followed by every infix operator that binds at least as tightly
+     * as {@code minPrecedence}. All binary operators are left-associative.
+     *
+     * @param minPrecedence the weakest operator level this call may consume.
+     * @return the parsed expression.
+     */
+    private Expr parsePrecedence(int minPrecedence) {
+        Expr expr = prefix();
+
+        while (true) {
+            int precedence = INFIX_PRECEDENCE[tokens.peekType().ordinal()];
+            if (precedence == NONE || precedence < minPrecedence) break;
+
+            tokens.advance();
+            Token operator = previous();
+            Expr right = parsePrecedence(precedence + 1);
+            expr = new Expr.Binary(expr, operator.getType(), operator.getPosition(), right);
+        }
+
+        return expr;
+    }
+
+    private Expr prefix() {
+        switch (tokens.peekType()) {
+            case BANG:
+            case MINUS: {
+                tokens.advance();
+                Token operator = previous();
+                Expr right = parsePrecedence(UNARY);
+                return new Expr.Unary(operator.getType(), operator.getPosition(), right);
+            }
+            case FALSE:
+                tokens.advance();
+                return new Expr.BooleanLiteral(false);
+            case TRUE:
+                tokens.advance();
+                return new Expr.BooleanLiteral(true);
+            case NULL:
+                tokens.advance();
+                return new Expr.NullLiteral();
+            case NUMBER:
+                tokens.advance();
+                return new Expr.NumberLiteral(previous().getNumber());
+            case STRING:
+                tokens.advance();
+                return new Expr.StringLiteral((String) previous().getLiteral());
+            case IDENTIFIER:
+                tokens.advance();
+                return new Expr.Variable(previous().getLexeme(), previous().getPosition());
+            case LEFT_PAREN: {
+                tokens.advance();
+                Expr expr = expression();
+                consume(RIGHT_PAREN, "Expect ')' after expression.");
+                return new Expr.Grouping(expr);
+            }
+            default:
+                throw error(peek(), "Expect expression.");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package crumble.parser;
+
+import crumble.Diagnostics;
+import crumble.Expr;
+import crumble.Stmt;
+import crumble.scanner.Token;
+import crumble.scanner.TokenCursor;
+import crumble.scanner.TokenStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static crumble.scanner.TokenType.*;
+
+/**
+ * Parser for the statement language of the REPL: var declarations, print, blocks,
+ * expression statements and assignment. Expressions are parsed by
+ * {@link IterativeParser}.
+ *
+ * Only the tree-walking interpreter runs statements; the compiler and VM, and with them
+ * files and {@link crumble.engine.CrumbleEngine}, take expressions alone. This grammar is
+ * kept out of {@link Parser} so that the shared parsers only accept what both back ends
+ * can run.
+ *
+ * Open blocks are kept on their own stack and chained assignments are collected
+ * before they are built, so neither recurses and blocks nested to any depth parse.
+ */
+public class StatementParser extends IterativeParser {
+    public StatementParser(TokenStream tokens) {
+        super(tokens);
+    }
+
+    public StatementParser(TokenCursor tokens, Diagnostics diagnostics) {
+        super(tokens, diagnostics);
+    }
+
+    /**
+     * Parses a whole source as statements. As in {@link #parseAll()}, the semicolon after
+     * the last statement may be left out, and parsing carries on past syntax errors.
+     *
+     * @return the statements that parsed; errors are in {@link #getDiagnostics()}.
+     */
+    public List<Stmt> parseStatements() {
+        // Statements of each open block, innermost last; the first is the top level.
+        List<List<Stmt>> blocks = new ArrayList<>();
+        blocks.add(new ArrayList<>());
+
+        while (true) {
+            List<Stmt> current = blocks.get(blocks.size() - 1);
+            if (isAtEnd()) {
+                if (blocks.size() == 1) return current;
+
+                // An unclosed block is an error, and is dropped along with what it holds.
+                error(peek(), "Expect '}' after block.");
+                synchronize();
+                blocks.remove(blocks.size() - 1);
+            } else if (blocks.size() > 1 && conditionalAdvance(RIGHT_BRACE)) {
+                blocks.remove(blocks.size() - 1);
+                blocks.get(blocks.size() - 1).add(new Stmt.Block(current));
+            } else if (conditionalAdvance(LEFT_BRACE)) {
+                blocks.add(new ArrayList<>());
+            } else {
+                Stmt stmt = declaration();
+                if (stmt != null) current.add(stmt);
+            }
+        }
+    }
+
+    // ===================
+    // Statement Parsing
+    // ===================
+
+    /**
+     * Parses a statement other than a block.
+     *
+     * @return the statement, or null if it had a syntax error and was skipped.
+     */
+    private Stmt declaration() {
+        try {
+            if (conditionalAdvance(VAR)) return varDeclaration();
+            return statement();
+        } catch (ParseError error) {
+            synchronize();
+            return null;
+        }
+    }
+
+    private Stmt varDeclaration() {
+        consume(IDENTIFIER, "Expect variable name.");
+        Token name = previous();
+
+        Expr initializer = null;
+        if (conditionalAdvance(EQUAL)) {
+            initializer = assignment();
+        }
+        endStatement("Expect ';' after variable declaration.");
+        return new Stmt.Var(name.getLexeme(), name.getPosition(), initializer);
+    }
+
+    private Stmt statement() {
+        if (conditionalAdvance(PRINT)) {
+            Expr value = assignment();
+            endStatement("Expect ';' after value.");
+            return new Stmt.Print(value);
+        }
+
+        Expr expr = assignment();
+        endStatement("Expect ';' after expression.");
+        return new Stmt.Expression(expr);
+    }
+
+    /**
+     * Parses an expression that may assign to a variable. Assignment is right-associative
+     * and binds loosest of all, so every target of a chain like {@code a = b = 1} is read
+     * first and the assignments are built from the right.
+     */
+    private Expr assignment() {
+        List<Expr> targets = new ArrayList<>();
+        List<Token> equalSigns = new ArrayList<>();
+        Expr expr = expression();
+        while (conditionalAdvance(EQUAL)) {
+            targets.add(expr);
+            equalSigns.add(previous());
+            expr = expression();
+        }
+
+        for (int i = targets.size() - 1; i >= 0; i--) {
+            Expr target = targets.get(i);
+            if (target instanceof Expr.Variable) {
+                Expr.Variable variable = (Expr.Variable) target;
+                expr = new Expr.Assign(variable.name, variable.position, expr);
+            } else {
+                error(equalSigns.get(i), "Invalid assignment target."); // Reported, but no need to resync
+                expr = target;
+            }
+        }
+        return expr;
+    }
+
+    /**
+     * Consumes the semicolon ending a statement, which the last statement may omit.
+     */
+    private void endStatement(String message) {
+        if (!isAtEnd()) consume(SEMICOLON, message);
+    }
+}
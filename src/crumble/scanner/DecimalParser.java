@@ -0,0 +1,59 @@
+package crumble.scanner;
+
+/**
+ * Decodes number literals ({@code digits} or {@code digits.digits}) straight from the
+ * source, without building a String or going through {@link Double#parseDouble}.
+ *
+ * All digits are collected into a long mantissa. Integers that fit in 53 bits convert
+ * exactly. A fraction is a single division by a power of ten, which is correctly
+ * rounded as long as both operands are exact doubles, i.e. the mantissa fits in 53 bits
+ * and there are at most 22 fraction digits. Anything longer falls back to
+ * {@code Double.parseDouble}.
+ */
+final class DecimalParser {
+    private static final long MAX_EXACT = 1L << 53; // Largest range of exactly representable integers
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22
+    };
+
+    private DecimalParser() {
+    }
+
+    /**
+     * @param source the source text.
+     * @param start  index of the literal's first digit.
+     * @param length number of characters in the literal.
+     * @return the value of the literal.
+     */
+    static double parse(SourceBuffer source, int start, int length) {
+        long mantissa = 0;
+        int fractionDigits = -1; // -1 until the '.' is seen
+
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(start + i);
+            if (c == '.') {
+                fractionDigits = 0;
+                continue;
+            }
+            if (mantissa >= MAX_EXACT) {
+                return Double.parseDouble(source.text(start, length));
+            }
+            mantissa = mantissa * 10 + (c - '0');
+            if (fractionDigits >= 0) fractionDigits++;
+        }
+
+        if (mantissa > MAX_EXACT) {
+            return Double.parseDouble(source.text(start, length));
+        }
+        if (fractionDigits <= 0) {
+            return mantissa;
+        }
+        if (fractionDigits < POWERS_OF_TEN.length) {
+            return mantissa / POWERS_OF_TEN[fractionDigits];
+        }
+        return Double.parseDouble(source.text(start, length));
+    }
+}
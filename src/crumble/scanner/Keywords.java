@@ -0,0 +1,72 @@
+package crumble.scanner;
+
+/**
+ * Recognizes reserved words straight from the source, without building a String.
+ *
+ * The lookup is a hand-unrolled trie: it switches on the first character (and on the
+ * second one where several keywords share a first letter), then compares the rest of
+ * the single candidate keyword in place.
+ */
+final class Keywords {
+
+    private Keywords() {
+    }
+
+    /**
+     * Classifies an identifier-shaped range of the source.
+     *
+     * @param source the source text.
+     * @param start  index of the first character of the word.
+     * @param length number of characters in the word.
+     * @return the keyword's token type, or {@link TokenType#IDENTIFIER} if it is not one.
+     */
+    static TokenType lookup(SourceBuffer source, int start, int length) {
+        switch (source.charAt(start)) {
+            case 'a': return match(source, start, length, 1, "nd", TokenType.AND);
+            case 'c': return match(source, start, length, 1, "lass", TokenType.CLASS);
+            case 'e': return match(source, start, length, 1, "lse", TokenType.ELSE);
+            case 'f':
+                if (length > 1) {
+                    switch (source.charAt(start + 1)) {
+                        case 'a': return match(source, start, length, 2, "lse", TokenType.FALSE);
+                        case 'o': return match(source, start, length, 2, "r", TokenType.FOR);
+                        case 'u': return match(source, start, length, 2, "n", TokenType.FUN);
+                    }
+                }
+                break;
+            case 'i': return match(source, start, length, 1, "f", TokenType.IF);
+            case 'n': return match(source, start, length, 1, "ull", TokenType.NULL);
+            case 'o': return match(source, start, length, 1, "r", TokenType.OR);
+            case 'p': return match(source, start, length, 1, "rint", TokenType.PRINT);
+            case 'r': return match(source, start, length, 1, "eturn", TokenType.RETURN);
+            case 's': return match(source, start, length, 1, "uper", TokenType.SUPER);
+            case 't':
+                if (length > 1) {
+                    switch (source.charAt(start + 1)) {
+                        case 'h': return match(source, start, length, 2, "is", TokenType.THIS);
+                        case 'r': return match(source, start, length, 2, "ue", TokenType.TRUE);
+                    }
+                }
+                break;
+            case 'v': return match(source, start, length, 1, "ar", TokenType.VAR);
+            case 'w': return match(source, start, length, 1, "hile", TokenType.WHILE);
+        }
+        return TokenType.IDENTIFIER;
+    }
+
+    /**
+     * Checks that the word is exactly {@code prefixLength} already-matched characters
+     * followed by {@code rest}.
+     */
+    private static TokenType match(SourceBuffer source, int start, int length,
+                                   int prefixLength, String rest, TokenType type) {
+        if (length != prefixLength + rest.length()) return TokenType.IDENTIFIER;
+
+        for (int i = 0; i < rest.length(); i++) {
+            if (source.charAt(start + prefixLength + i) != rest.charAt(i)) {
+                return TokenType.IDENTIFIER;
+            }
+        }
+        return type;
+    }
+}
@@ -0,0 +1,35 @@
+package crumble.scanner;
+
+import java.util.List;
+
+/**
+ * {@link TokenCursor} over a materialized list of tokens.
+ */
+final class ListTokenCursor implements TokenCursor {
+    private final List<Token> tokens;
+    private int current = 0;
+
+    ListTokenCursor(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public TokenType peekType() {
+        return tokens.get(current).getType();
+    }
+
+    @Override
+    public Token peek() {
+        return tokens.get(current);
+    }
+
+    @Override
+    public void advance() {
+        if (tokens.get(current).getType() != TokenType.EOF) current++;
+    }
+
+    @Override
+    public Token previous() {
+        return current > 0 ? tokens.get(current - 1) : null;
+    }
+}
@@ -0,0 +1,38 @@
+package crumble.scanner;
+
+/**
+ * Packs where a token starts in its source into a single long, so that syntax trees
+ * can remember an operator's position without holding on to its {@link Token}.
+ *
+ * The line is kept in the high 32 bits and the offset in the low 32 bits.
+ */
+public final class Position {
+    /** Position of a node that was not parsed from any source. */
+    public static final long NONE = 0;
+
+    private Position() {
+    }
+
+    /**
+     * @param line   the line, starting from 1.
+     * @param offset index of the first character in the source.
+     * @return the packed position.
+     */
+    public static long of(int line, int offset) {
+        return ((long) line << 32) | (offset & 0xffffffffL);
+    }
+
+    /**
+     * @return the line of a packed position, or 0 for {@link #NONE}.
+     */
+    public static int line(long position) {
+        return (int) (position >>> 32);
+    }
+
+    /**
+     * @return the source offset of a packed position.
+     */
+    public static int offset(long position) {
+        return (int) position;
+    }
+}
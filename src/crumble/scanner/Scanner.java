@@ -1,53 +1,165 @@
 package crumble.scanner;
 
-import crumble.Crumble;
+import crumble.Diagnostics;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Turns source text into tokens. The scanner reads straight out of a {@link SourceBuffer}
+ * and never cuts a lexeme out of it; tokens only record where they are in the source.
+ *
+ * A scanner is used in one of two modes: eagerly, through {@link #scanTokens()} or
+ * {@link #scanTokenStream()}, or lazily, pulling one token at a time through
+ * {@link #nextToken()} or {@link #cursor()}.
+ */
 public class Scanner {
-    private final String source;
+    private final SourceBuffer source;
+    private final SymbolTable symbols;
+    private final Diagnostics diagnostics;
     private int current = 0;  // Index of the current character, starting from 0
     private int start = 0;    // Start index of the current token being processed
     private int line = 1;     // Line number for error reporting
-    private final List<Token> tokens = new ArrayList<>();
-
-    private static final Map<String, TokenType> keywords;
-    static {
-        keywords = new HashMap<>();
-        keywords.put("and", TokenType.AND);
-        keywords.put("class", TokenType.CLASS);
-        keywords.put("else", TokenType.ELSE);
-        keywords.put("false", TokenType.FALSE);
-        keywords.put("for", TokenType.FOR);
-        keywords.put("fun", TokenType.FUN);
-        keywords.put("if", TokenType.IF);
-        keywords.put("null", TokenType.NULL);
-        keywords.put("or", TokenType.OR);
-        keywords.put("print", TokenType.PRINT);
-        keywords.put("return", TokenType.RETURN);
-        keywords.put("super", TokenType.SUPER);
-        keywords.put("this", TokenType.THIS);
-        keywords.put("true", TokenType.TRUE);
-        keywords.put("var", TokenType.VAR);
-        keywords.put("while", TokenType.WHILE);
-    }
+    private TokenStream tokens; // Set when scanning eagerly
+    private Token pending;      // Set by addToken when scanning lazily
 
     public Scanner(String source) {
+        this(SourceBuffer.of(source));
+    }
+
+    public Scanner(char[] source) {
+        this(SourceBuffer.of(source));
+    }
+
+    /**
+     * Creates a scanner over UTF-8 encoded source, which is scanned without being decoded.
+     *
+     * @param utf8 the encoded source text.
+     */
+    public Scanner(byte[] utf8) {
+        this(SourceBuffer.ofUtf8(utf8));
+    }
+
+    /**
+     * Creates a scanner that reads the source in fixed-size chunks as tokens are pulled.
+     *
+     * @param reader the source text; the caller remains responsible for closing it.
+     */
+    public Scanner(Reader reader) {
+        this(SourceBuffer.of(reader, SourceBuffer.DEFAULT_CHUNK_SIZE));
+    }
+
+    /**
+     * Creates a scanner that reads UTF-8 encoded source in fixed-size chunks as tokens
+     * are pulled.
+     *
+     * @param channel the encoded source text; the caller remains responsible for closing it.
+     */
+    public Scanner(ReadableByteChannel channel) {
+        this(SourceBuffer.ofUtf8(channel, SourceBuffer.DEFAULT_CHUNK_SIZE));
+    }
+
+    public Scanner(SourceBuffer source) {
+        this(source, new SymbolTable());
+    }
+
+    /**
+     * Creates a scanner that interns names into an existing table, so that symbol IDs
+     * agree with other sources scanned with the same table.
+     *
+     * @param source  the source text.
+     * @param symbols the table to intern identifiers and string values into.
+     */
+    public Scanner(SourceBuffer source, SymbolTable symbols) {
+        this(source, symbols, new Diagnostics());
+    }
+
+    /**
+     * Creates a scanner that records its errors into an existing context, e.g. one shared
+     * with the parser that reads its tokens.
+     *
+     * @param source      the source text.
+     * @param symbols     the table to intern identifiers and string values into.
+     * @param diagnostics where to record errors.
+     */
+    public Scanner(SourceBuffer source, SymbolTable symbols, Diagnostics diagnostics) {
         this.source = source;
+        this.symbols = symbols;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * @return the table this scanner interns identifiers and string values into.
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the errors found so far. A parser reading this scanner's tokens can
+     *         record into the same context.
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
     }
 
+    /**
+     * Scans the whole source into Token objects.
+     *
+     * @return the tokens in order, ending with EOF.
+     */
     public List<Token> scanTokens() {
+        return scanTokenStream().toList();
+    }
+
+    /**
+     * Scans the whole source into a packed {@link TokenStream}, which does not create
+     * a Token object per token.
+     *
+     * @return the tokens in order, ending with EOF.
+     */
+    public TokenStream scanTokenStream() {
+        tokens = new TokenStream(source, symbols);
         while (!isAtEnd()) {
             start = current;
             scanToken();
         }
-        tokens.add(new Token(TokenType.EOF, "", null, line));
+        tokens.add(TokenType.EOF, current, 0, line, SymbolTable.NO_SYMBOL, 0);
         return tokens;
     }
 
+    /**
+     * Scans just far enough to produce the next token. Over a windowed source, text
+     * before that token is released, so memory does not grow with the input.
+     *
+     * @return the next token; EOF once the source is exhausted, on every later call too.
+     */
+    public Token nextToken() {
+        while (pending == null) {
+            source.discardBefore(current);
+            if (isAtEnd()) {
+                return new Token(TokenType.EOF, source, current, 0, line);
+            }
+            start = current;
+            scanToken();
+        }
+
+        Token token = pending;
+        pending = null;
+        return token;
+    }
+
+    /**
+     * Returns a cursor that pulls tokens from {@link #nextToken()} as the parser asks for
+     * them, keeping only the current and the previous token.
+     *
+     * @return a cursor positioned at the first token.
+     */
+    public TokenCursor cursor() {
+        return new PullCursor();
+    }
+
     private void scanToken() {
         char c = next();
         switch (c) {
@@ -85,18 +197,54 @@ public class Scanner {
                 } else if (isAlpha(c)) {
                     processIdentifier();
                 } else {
-                    Crumble.error(line, "Unexpected character: " + c);
+                    skipRestOfCharacter(c);
+                    diagnostics.error(line, "Unexpected character: " + source.text(start, current - start));
                 }
         }
     }
 
-    private void addToken(TokenType type, Object literal) {
-        String lexeme = source.substring(start, current);
-        tokens.add(new Token(type, lexeme, literal, line));
+    /**
+     * Consumes the rest of a character that spans more than one unit of the source: the
+     * continuation bytes after a UTF-8 lead byte, or the low half of a surrogate pair.
+     * An unexpected character is then reported once, decoded, rather than unit by unit.
+     *
+     * @param first the unit already consumed.
+     */
+    private void skipRestOfCharacter(char first) {
+        if (source.isUtf8()) {
+            int continuations = first >= 0xF0 ? 3 : first >= 0xE0 ? 2 : first >= 0xC0 ? 1 : 0;
+            for (int i = 0; i < continuations && !isAtEnd() && (peek() & 0xC0) == 0x80; i++) {
+                next();
+            }
+        } else if (Character.isHighSurrogate(first) && Character.isLowSurrogate(peek())) {
+            next();
+        }
+    }
+
+    /**
+     * Records the token spanning [start, current).
+     *
+     * @param symbol the interned name of an IDENTIFIER or value of a STRING.
+     * @param number the value of a NUMBER.
+     */
+    private void addToken(TokenType type, int symbol, double number) {
+        if (tokens != null) {
+            tokens.add(type, start, current - start, line, symbol, number);
+            return;
+        }
+
+        String lexeme = type.getText();
+        if (type == TokenType.IDENTIFIER) {
+            lexeme = symbols.name(symbol);
+        } else if (lexeme == null && source.isWindowed()) {
+            lexeme = source.text(start, current - start); // The window moves on
+        }
+        String value = type == TokenType.STRING ? symbols.name(symbol) : null;
+        pending = new Token(type, source, start, current - start, lexeme, value, number, line, symbol);
     }
 
     private void addToken(TokenType type) {
-        addToken(type, null);
+        addToken(type, SymbolTable.NO_SYMBOL, 0);
     }
 
     private char next() {
@@ -108,7 +256,7 @@ public class Scanner {
     }
 
     private char peekNext() {
-        return (current + 1 >= source.length()) ? '\0' : source.charAt(current + 1);
+        return source.isEnd(current + 1) ? '\0' : source.charAt(current + 1);
     }
 
     private boolean advanceOnMatch(char expected) {
@@ -124,13 +272,13 @@ public class Scanner {
         }
 
         if (isAtEnd()) {
-            Crumble.error(line, "Unterminated string.");
+            diagnostics.error(line, "Unterminated string.");
             return;
         }
 
         next(); // Consume the closing "
-        String value = source.substring(start + 1, current - 1);
-        addToken(TokenType.STRING, value);
+        int symbol = symbols.intern(source, start + 1, current - start - 2);
+        addToken(TokenType.STRING, symbol, 0);
     }
 
     private void processNumber() {
@@ -139,18 +287,21 @@ public class Scanner {
             next(); // Consume the '.'
             while (isDigit(peek())) next();
         }
-        addToken(TokenType.NUMBER, Double.parseDouble(source.substring(start, current)));
+        addToken(TokenType.NUMBER, SymbolTable.NO_SYMBOL, DecimalParser.parse(source, start, current - start));
     }
 
     private void processIdentifier() {
         while (isAlphaNumeric(peek())) next();
-        String text = source.substring(start, current);
-        TokenType type = keywords.getOrDefault(text, TokenType.IDENTIFIER);
-        addToken(type);
+        TokenType type = Keywords.lookup(source, start, current - start);
+        if (type == TokenType.IDENTIFIER) {
+            addToken(type, symbols.intern(source, start, current - start), 0);
+        } else {
+            addToken(type);
+        }
     }
 
     private boolean isAtEnd() {
-        return current >= source.length();
+        return source.isEnd(current);
     }
 
     private boolean isDigit(char c) {
@@ -164,4 +315,34 @@ public class Scanner {
     private boolean isAlphaNumeric(char c) {
         return isAlpha(c) || isDigit(c);
     }
+
+    /**
+     * Bounded-lookahead cursor over {@link #nextToken()}.
+     */
+    private final class PullCursor implements TokenCursor {
+        private Token current = nextToken();
+        private Token previous;
+
+        @Override
+        public TokenType peekType() {
+            return current.getType();
+        }
+
+        @Override
+        public Token peek() {
+            return current;
+        }
+
+        @Override
+        public void advance() {
+            if (current.getType() == TokenType.EOF) return;
+            previous = current;
+            current = nextToken();
+        }
+
+        @Override
+        public Token previous() {
+            return previous;
+        }
+    }
 }
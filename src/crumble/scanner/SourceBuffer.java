@@ -0,0 +1,390 @@
+package crumble.scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Random-access view of source text that the {@link Scanner} reads directly.
+ *
+ * Tokens keep a reference to their buffer plus an offset and length, and only turn
+ * that range into a String when somebody asks for the lexeme.
+ *
+ * Buffers over a {@link Reader} or a channel are <em>windowed</em>: they read the input
+ * in fixed-size chunks and may drop text the scanner has told them it is done with, so
+ * memory stays bounded by the chunk size rather than by the size of the input.
+ */
+public abstract class SourceBuffer {
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    /**
+     * Wraps a String. The characters are copied once into a char[] up front.
+     *
+     * @param source the source text.
+     * @return a buffer over the text.
+     */
+    public static SourceBuffer of(String source) {
+        return new CharArraySource(source.toCharArray());
+    }
+
+    /**
+     * Wraps a char[] without copying it. The array must not be modified afterwards.
+     *
+     * @param source the source text.
+     * @return a buffer over the array.
+     */
+    public static SourceBuffer of(char[] source) {
+        return new CharArraySource(source);
+    }
+
+    /**
+     * Wraps UTF-8 encoded bytes without decoding or copying them. Everything outside of
+     * string literals is ASCII, so the scanner can work on the raw bytes; multi-byte
+     * sequences are only decoded when a lexeme or string value is built.
+     *
+     * @param source the UTF-8 encoded source text.
+     * @return a buffer over the bytes.
+     */
+    public static SourceBuffer ofUtf8(byte[] source) {
+        return new Utf8ArraySource(source);
+    }
+
+    /**
+     * Wraps UTF-8 encoded bytes in a buffer, typically a {@link java.nio.MappedByteBuffer}
+     * over a source file, and scans them in place. Bytes between the buffer's position
+     * and limit are the source; the buffer's own position is never moved.
+     *
+     * @param source the UTF-8 encoded source text.
+     * @return a buffer over the bytes.
+     */
+    public static SourceBuffer ofUtf8(ByteBuffer source) {
+        return new Utf8ByteBufferSource(source.slice());
+    }
+
+    /**
+     * Streams characters from a reader in chunks of {@code chunkSize} chars.
+     * Reading errors surface as {@link UncheckedIOException}s while scanning.
+     *
+     * @param reader    the source text; the caller remains responsible for closing it.
+     * @param chunkSize how many chars to read at a time.
+     * @return a windowed buffer over the reader.
+     */
+    public static SourceBuffer of(Reader reader, int chunkSize) {
+        return new ReaderSource(reader, chunkSize);
+    }
+
+    /**
+     * Streams UTF-8 encoded bytes from a channel in chunks of {@code chunkSize} bytes.
+     * Reading errors surface as {@link UncheckedIOException}s while scanning.
+     *
+     * The channel must be in blocking mode: the scanner has nothing to do while it waits
+     * for input, so a non-blocking channel would only make it spin.
+     *
+     * @param channel   the encoded source text; the caller remains responsible for closing it.
+     * @param chunkSize how many bytes to read at a time.
+     * @return a windowed buffer over the channel.
+     * @throws IllegalArgumentException if the channel is a non-blocking selectable channel.
+     */
+    public static SourceBuffer ofUtf8(ReadableByteChannel channel, int chunkSize) {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("Channel must be in blocking mode");
+        }
+        return new ChannelSource(channel, chunkSize);
+    }
+
+    /**
+     * @return true if text before an index given to {@link #discardBefore} may be dropped,
+     *         in which case tokens cannot build their lexemes lazily.
+     */
+    boolean isWindowed() {
+        return false;
+    }
+
+    /**
+     * @return true if {@link #charAt} returns raw UTF-8 bytes rather than chars.
+     */
+    boolean isUtf8() {
+        return false;
+    }
+
+    /**
+     * Tells the buffer that no text before {@code index} will be asked for again.
+     *
+     * @param index the start of the oldest token still being scanned.
+     */
+    void discardBefore(int index) {
+    }
+
+    /**
+     * @return true if {@code index} is past the last character of the source.
+     */
+    abstract boolean isEnd(int index);
+
+    /**
+     * @return the character (or, for byte sources, the unsigned byte) at {@code index}.
+     */
+    abstract char charAt(int index);
+
+    /**
+     * Decodes a range of the source into a String.
+     *
+     * @param offset index of the first character.
+     * @param length number of characters (or bytes) in the range.
+     * @return the text of the range.
+     */
+    abstract String text(int offset, int length);
+
+    private static final class CharArraySource extends SourceBuffer {
+        private final char[] chars;
+
+        CharArraySource(char[] chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        boolean isEnd(int index) {
+            return index >= chars.length;
+        }
+
+        @Override
+        char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        String text(int offset, int length) {
+            return new String(chars, offset, length);
+        }
+    }
+
+    private static final class Utf8ArraySource extends SourceBuffer {
+        private final byte[] bytes;
+
+        Utf8ArraySource(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        boolean isUtf8() {
+            return true;
+        }
+
+        @Override
+        boolean isEnd(int index) {
+            return index >= bytes.length;
+        }
+
+        @Override
+        char charAt(int index) {
+            return (char) (bytes[index] & 0xff);
+        }
+
+        @Override
+        String text(int offset, int length) {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Utf8ByteBufferSource extends SourceBuffer {
+        private final ByteBuffer bytes;
+        private final int length;
+
+        Utf8ByteBufferSource(ByteBuffer bytes) {
+            this.bytes = bytes;
+            this.length = bytes.limit();
+        }
+
+        @Override
+        boolean isUtf8() {
+            return true;
+        }
+
+        @Override
+        boolean isEnd(int index) {
+            return index >= length;
+        }
+
+        @Override
+        char charAt(int index) {
+            return (char) (bytes.get(index) & 0xff);
+        }
+
+        @Override
+        String text(int offset, int length) {
+            byte[] range = new byte[length];
+            bytes.get(offset, range);
+            return new String(range, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Shared window management for the streaming sources. The window holds the absolute
+     * range [base, base + limit) of the input; it only grows when a single token is
+     * longer than the chunk size.
+     */
+    private abstract static class WindowedSource extends SourceBuffer {
+        final int chunkSize;
+        int base = 0;       // Absolute index of the first buffered character
+        int limit = 0;      // Number of buffered characters
+        int keepFrom = 0;   // Absolute index before which text may be dropped
+        boolean exhausted = false;
+
+        WindowedSource(int chunkSize) {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+            }
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        boolean isWindowed() {
+            return true;
+        }
+
+        @Override
+        void discardBefore(int index) {
+            keepFrom = Math.max(keepFrom, index);
+        }
+
+        @Override
+        boolean isEnd(int index) {
+            while (index - base >= limit) {
+                if (exhausted) return true;
+                fill();
+            }
+            return false;
+        }
+
+        /**
+         * Reads the next chunk, first shifting out text before {@link #keepFrom} and
+         * growing the window if it is still too full for another chunk.
+         */
+        private void fill() {
+            int drop = keepFrom - base;
+            if (drop > 0 && capacity() - limit < chunkSize) {
+                shift(drop);
+                base += drop;
+                limit -= drop;
+            }
+            if (capacity() - limit < chunkSize) {
+                grow(limit + chunkSize);
+            }
+            try {
+                int read = read(limit, chunkSize);
+                if (read < 0) {
+                    exhausted = true;
+                } else {
+                    limit += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        abstract int capacity();
+
+        abstract void shift(int drop);
+
+        abstract void grow(int capacity);
+
+        abstract int read(int offset, int max) throws IOException;
+    }
+
+    private static final class ReaderSource extends WindowedSource {
+        private final Reader reader;
+        private char[] window;
+
+        ReaderSource(Reader reader, int chunkSize) {
+            super(chunkSize);
+            this.reader = reader;
+            this.window = new char[chunkSize];
+        }
+
+        @Override
+        char charAt(int index) {
+            return window[index - base];
+        }
+
+        @Override
+        String text(int offset, int length) {
+            return new String(window, offset - base, length);
+        }
+
+        @Override
+        int capacity() {
+            return window.length;
+        }
+
+        @Override
+        void shift(int drop) {
+            System.arraycopy(window, drop, window, 0, limit - drop);
+        }
+
+        @Override
+        void grow(int capacity) {
+            window = Arrays.copyOf(window, Math.max(capacity, window.length * 2));
+        }
+
+        @Override
+        int read(int offset, int max) throws IOException {
+            return reader.read(window, offset, max);
+        }
+    }
+
+    private static final class ChannelSource extends WindowedSource {
+        private final ReadableByteChannel channel;
+        private byte[] window;
+
+        ChannelSource(ReadableByteChannel channel, int chunkSize) {
+            super(chunkSize);
+            this.channel = channel;
+            this.window = new byte[chunkSize];
+        }
+
+        @Override
+        boolean isUtf8() {
+            return true;
+        }
+
+        @Override
+        char charAt(int index) {
+            return (char) (window[index - base] & 0xff);
+        }
+
+        @Override
+        String text(int offset, int length) {
+            return new String(window, offset - base, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        int capacity() {
+            return window.length;
+        }
+
+        @Override
+        void shift(int drop) {
+            System.arraycopy(window, drop, window, 0, limit - drop);
+        }
+
+        @Override
+        void grow(int capacity) {
+            window = Arrays.copyOf(window, Math.max(capacity, window.length * 2));
+        }
+
+        @Override
+        int read(int offset, int max) throws IOException {
+            int read = channel.read(ByteBuffer.wrap(window, offset, max));
+            if (read == 0) {
+                // A blocking read returns at least one byte, so the channel has since
+                // been switched to non-blocking mode.
+                throw new IOException("Channel is not in blocking mode");
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package crumble.scanner;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifier names and string literal values into canonical Strings with small
+ * integer IDs, so a name used many times in a source is stored once and can be compared
+ * by ID instead of by content.
+ *
+ * Lookups hash and compare the source range in place; a String is only built the first
+ * time a name is seen. IDs are dense and start at 0. A table may be shared by several
+ * scanners (e.g. across REPL lines) but is not thread-safe.
+ */
+public final class SymbolTable {
+    /** Symbol ID of tokens that are neither identifiers nor strings. */
+    public static final int NO_SYMBOL = -1;
+
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+
+    private int[] slots = new int[128]; // Open addressing; holds ID + 1, 0 means empty
+
+    /**
+     * Interns a name given as a String.
+     *
+     * @param name the name.
+     * @return the ID of the name.
+     */
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) return add(name, hash, slot);
+            if (hashes[id] == hash && names[id].equals(name)) return id;
+        }
+    }
+
+    /**
+     * Interns the text of a source range without building a String for names already
+     * in the table.
+     *
+     * @param source the source text.
+     * @param start  index of the first character of the name.
+     * @param length number of characters (bytes, for UTF-8 sources) in the name.
+     * @return the ID of the name.
+     */
+    int intern(SourceBuffer source, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(start + i);
+            if (c >= 0x80 && source.isUtf8()) {
+                return intern(source.text(start, length)); // Raw bytes are not chars here
+            }
+            hash = 31 * hash + c; // Same as String.hashCode
+        }
+
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) return add(source.text(start, length), hash, slot);
+            if (hashes[id] == hash && matches(names[id], source, start, length)) return id;
+        }
+    }
+
+    /**
+     * @param id a symbol ID returned by this table.
+     * @return the canonical String for that ID.
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return number of distinct names interned so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(String name, SourceBuffer source, int start, int length) {
+        if (name.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != source.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        names[size] = name;
+        hashes[size] = hash;
+        slots[slot] = size + 1;
+        int id = size++;
+
+        if (size * 2 > slots.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+}
@@ -2,15 +2,43 @@ package crumble.scanner;
 
 public class Token {
     private final TokenType type;
-    final String lexeme;
-    private final Object literal;
+    String lexeme; // Built lazily from source by getLexeme()
+    private final Object literal; // Value of a STRING token
+    private final double number;  // Value of a NUMBER token, kept unboxed
     final int line;
 
+    private final SourceBuffer source;
+    private final int offset;
+    private final int length;
+    private final int symbol; // SymbolTable ID of an identifier's name or a string's value
+
     Token(TokenType type, String lexeme, Object literal, int line) {
         this.type = type;
         this.lexeme = lexeme;
+        this.literal = literal instanceof Double ? null : literal;
+        this.number = literal instanceof Double ? (Double) literal : 0;
+        this.line = line;
+        this.source = null;
+        this.offset = 0;
+        this.length = lexeme.length();
+        this.symbol = SymbolTable.NO_SYMBOL;
+    }
+
+    Token(TokenType type, SourceBuffer source, int offset, int length, int line) {
+        this(type, source, offset, length, type.getText(), null, 0, line, SymbolTable.NO_SYMBOL);
+    }
+
+    Token(TokenType type, SourceBuffer source, int offset, int length,
+          String lexeme, Object literal, double number, int line, int symbol) {
+        this.type = type;
+        this.lexeme = lexeme;
         this.literal = literal;
+        this.number = number;
         this.line = line;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.symbol = symbol;
     }
 
     public TokenType getType() {
@@ -18,18 +46,64 @@ public class Token {
     }
 
     public String getLexeme() {
+        if (lexeme == null) {
+            lexeme = source.text(offset, length);
+        }
         return lexeme;
     }
 
+    /**
+     * @return the value of a STRING or NUMBER token, or null for any other token. Number
+     *         values are boxed on every call; use {@link #getNumber()} to avoid that.
+     */
     public Object getLiteral() {
-        return literal;
+        return type == TokenType.NUMBER ? (Object) number : literal;
+    }
+
+    /**
+     * @return the value of a NUMBER token, or 0 for any other token.
+     */
+    public double getNumber() {
+        return number;
     }
 
     public int getLine() {
         return line;
     }
 
+    /**
+     * @return the token's line and offset, packed by {@link Position}.
+     */
+    public long getPosition() {
+        return Position.of(line, offset);
+    }
+
+    /**
+     * @return index of the token's first character in its source.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return number of characters (bytes, for UTF-8 sources) the token spans in its source.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the interned ID of an identifier's name or a string literal's value. Two
+     * tokens scanned with the same {@link SymbolTable} have equal IDs exactly when their
+     * names (or values) are equal.
+     *
+     * @return the symbol ID, or {@link SymbolTable#NO_SYMBOL} for other tokens.
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
     public String toString() {
-        return type + " " + lexeme + " " + literal;
+        return type + " " + getLexeme() + " " + getLiteral();
     }
 }
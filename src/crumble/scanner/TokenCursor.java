@@ -0,0 +1,52 @@
+package crumble.scanner;
+
+import java.util.List;
+
+/**
+ * Forward-only view of a token sequence, which is everything the parser needs from
+ * its input. Sequences always end with an {@link TokenType#EOF} token; once the
+ * cursor reaches it, it stays there.
+ */
+public interface TokenCursor {
+
+    /**
+     * Wraps an EOF-terminated token list, such as the one from {@link Scanner#scanTokens()}.
+     *
+     * @param tokens the tokens to walk.
+     * @return a cursor positioned at the first token.
+     */
+    static TokenCursor of(List<Token> tokens) {
+        return new ListTokenCursor(tokens);
+    }
+
+    /**
+     * @return the type of the current token, without materializing it.
+     */
+    TokenType peekType();
+
+    /**
+     * @return the current token.
+     */
+    Token peek();
+
+    /**
+     * Moves past the current token, unless it is EOF.
+     */
+    void advance();
+
+    /**
+     * @return the token most recently moved past, or null at the start of input.
+     */
+    Token previous();
+
+    /**
+     * Returns the current token and moves past it.
+     *
+     * @return the token that was current.
+     */
+    default Token next() {
+        Token token = peek();
+        advance();
+        return token;
+    }
+}
@@ -0,0 +1,193 @@
+package crumble.scanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packed, structure-of-arrays token sequence produced by {@link Scanner#scanTokenStream()}.
+ *
+ * Each token is one entry in parallel arrays holding its type, start offset, length,
+ * line and {@link SymbolTable} ID. Identifier names and string values come from the
+ * symbol table. Only NUMBER tokens carry a value of their own, so those live in a
+ * separate side table of (token index, double) pairs instead of a slot on every token.
+ * {@link Token} objects are only created when one is asked for.
+ */
+public final class TokenStream {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final SourceBuffer source;
+    private final SymbolTable symbolTable;
+
+    private byte[] types = new byte[256]; // TokenType ordinals; there are fewer than 128 types
+    private int[] starts = new int[256];
+    private int[] lengths = new int[256];
+    private int[] lines = new int[256];
+    private int[] symbols = new int[256];
+    private int size = 0;
+
+    private int[] numberOwners = new int[32]; // Token index of each NUMBER, ascending
+    private double[] numberValues = new double[32];
+    private int numberCount = 0;
+
+    TokenStream(SourceBuffer source, SymbolTable symbolTable) {
+        this.source = source;
+        this.symbolTable = symbolTable;
+    }
+
+    void add(TokenType type, int start, int length, int line, int symbol, double number) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        symbols[size] = symbol;
+
+        if (type == TokenType.NUMBER) {
+            if (numberCount == numberOwners.length) {
+                numberOwners = Arrays.copyOf(numberOwners, numberCount * 2);
+                numberValues = Arrays.copyOf(numberValues, numberCount * 2);
+            }
+            numberOwners[numberCount] = size;
+            numberValues[numberCount] = number;
+            numberCount++;
+        }
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public int symbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * @return the value of a NUMBER token, or 0 for any other token.
+     */
+    public double number(int index) {
+        int slot = Arrays.binarySearch(numberOwners, 0, numberCount, index);
+        return slot >= 0 ? numberValues[slot] : 0;
+    }
+
+    /**
+     * @return the boxed value of a NUMBER or STRING token, or null for any other token.
+     */
+    public Object literal(int index) {
+        switch (type(index)) {
+            case NUMBER: return number(index);
+            case STRING: return symbolTable.name(symbols[index]);
+            default: return null;
+        }
+    }
+
+    public String lexeme(int index) {
+        TokenType type = type(index);
+        if (type.getText() != null) return type.getText();
+        if (type == TokenType.IDENTIFIER) return symbolTable.name(symbols[index]);
+        return source.text(starts[index], lengths[index]);
+    }
+
+    /**
+     * Materializes a single token.
+     *
+     * @param index position of the token in the stream.
+     * @return a new Token for that position.
+     */
+    public Token token(int index) {
+        return token(index, number(index));
+    }
+
+    private Token token(int index, double number) {
+        TokenType type = type(index);
+        int symbol = symbols[index];
+        String lexeme = type == TokenType.IDENTIFIER ? symbolTable.name(symbol) : type.getText();
+        String value = type == TokenType.STRING ? symbolTable.name(symbol) : null;
+        return new Token(type, source, starts[index], lengths[index], lexeme, value, number, lines[index], symbol);
+    }
+
+    /**
+     * Materializes every token, for callers that still want a {@code List<Token>}.
+     *
+     * @return the tokens in order, ending with EOF.
+     */
+    public List<Token> toList() {
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(token(i));
+        }
+        return tokens;
+    }
+
+    /**
+     * @return a cursor positioned at the first token.
+     */
+    public TokenCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Reads types straight out of the packed arrays and only builds the Token objects the
+     * parser actually keeps, i.e. operators and literals. Since it only moves forward, it
+     * walks the number side table in step instead of searching it.
+     */
+    private final class Cursor implements TokenCursor {
+        private int current = 0;
+        private int nextNumber = 0;  // First number slot owned by a token at or after current
+        private Token previous;      // Cached materialization of token current - 1
+        private int previousIndex = -1;
+
+        @Override
+        public TokenType peekType() {
+            return TYPES[types[current]];
+        }
+
+        @Override
+        public Token peek() {
+            boolean owns = nextNumber < numberCount && numberOwners[nextNumber] == current;
+            return token(current, owns ? numberValues[nextNumber] : 0);
+        }
+
+        @Override
+        public void advance() {
+            if (TYPES[types[current]] == TokenType.EOF) return;
+            if (nextNumber < numberCount && numberOwners[nextNumber] == current) nextNumber++;
+            current++;
+        }
+
+        @Override
+        public Token previous() {
+            if (current == 0) return null;
+            if (previousIndex != current - 1) {
+                boolean owns = nextNumber > 0 && numberOwners[nextNumber - 1] == current - 1;
+                previous = token(current - 1, owns ? numberValues[nextNumber - 1] : 0);
+                previousIndex = current - 1;
+            }
+            return previous;
+        }
+    }
+}
@@ -2,21 +2,38 @@ package crumble.scanner;
 
 public enum TokenType {
     // Single-character tokens.
-    LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE,
-    COMMA, DOT, MINUS, PLUS, SEMICOLON, SLASH, STAR,
+    LEFT_PAREN("("), RIGHT_PAREN(")"), LEFT_BRACE("{"), RIGHT_BRACE("}"),
+    COMMA(","), DOT("."), MINUS("-"), PLUS("+"), SEMICOLON(";"), SLASH("/"), STAR("*"),
 
     // One or two character tokens.
-    BANG, BANG_EQUAL,
-    EQUAL, EQUAL_EQUAL,
-    GREATER, GREATER_EQUAL,
-    LESS, LESS_EQUAL,
+    BANG("!"), BANG_EQUAL("!="),
+    EQUAL("="), EQUAL_EQUAL("=="),
+    GREATER(">"), GREATER_EQUAL(">="),
+    LESS("<"), LESS_EQUAL("<="),
 
     // Literals.
-    IDENTIFIER, STRING, NUMBER,
+    IDENTIFIER(null), STRING(null), NUMBER(null),
 
     // Keywords.
-    AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NULL, OR,
-    PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE,
+    AND("and"), CLASS("class"), ELSE("else"), FALSE("false"), FUN("fun"), FOR("for"),
+    IF("if"), NULL("null"), OR("or"), PRINT("print"), RETURN("return"), SUPER("super"),
+    THIS("this"), TRUE("true"), VAR("var"), WHILE("while"),
 
-    EOF
+    EOF("");
+
+    private final String text;
+
+    TokenType(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Returns the lexeme every token of this type has, so it never has to be cut out of
+     * the source.
+     *
+     * @return the fixed text of this type, or null for identifiers and literals.
+     */
+    public String getText() {
+        return text;
+    }
 }
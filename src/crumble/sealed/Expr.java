@@ -0,0 +1,47 @@
+package crumble.sealed;
+
+import crumble.scanner.TokenType;
+
+/**
+ * This is an autogenerated sealed interface for the AST nodes, with one record per
+ * node type. Because the set of node types is closed, code can take nodes apart
+ * with instanceof patterns instead of going through a visitor.
+ * 
+ * This interface is automatically generated by the GenerateAST utility (--sealed) and should not be modified.
+ */
+public sealed interface Expr permits Expr.Binary, Expr.Grouping, Expr.NumberLiteral, Expr.BooleanLiteral, Expr.StringLiteral, Expr.NullLiteral, Expr.Unary, Expr.Variable, Expr.Assign {
+  public interface Visitor<R> {
+    R visitBinaryExpr(Binary expr);
+    R visitGroupingExpr(Grouping expr);
+    R visitNumberLiteralExpr(NumberLiteral expr);
+    R visitBooleanLiteralExpr(BooleanLiteral expr);
+    R visitStringLiteralExpr(StringLiteral expr);
+    R visitNullLiteralExpr(NullLiteral expr);
+    R visitUnaryExpr(Unary expr);
+    R visitVariableExpr(Variable expr);
+    R visitAssignExpr(Assign expr);
+  }
+
+  record Binary(Expr left, TokenType operator, long position, Expr right) implements Expr {}
+  record Grouping(Expr expression) implements Expr {}
+  record NumberLiteral(double value) implements Expr {}
+  record BooleanLiteral(boolean value) implements Expr {}
+  record StringLiteral(String value) implements Expr {}
+  record NullLiteral() implements Expr {}
+  record Unary(TokenType operator, long position, Expr right) implements Expr {}
+  record Variable(String name, long position) implements Expr {}
+  record Assign(String name, long position, Expr value) implements Expr {}
+
+  static <R> R dispatch(Expr expr, Visitor<R> visitor) {
+    if (expr instanceof Binary binary) return visitor.visitBinaryExpr(binary);
+    if (expr instanceof Grouping grouping) return visitor.visitGroupingExpr(grouping);
+    if (expr instanceof NumberLiteral numberLiteral) return visitor.visitNumberLiteralExpr(numberLiteral);
+    if (expr instanceof BooleanLiteral booleanLiteral) return visitor.visitBooleanLiteralExpr(booleanLiteral);
+    if (expr instanceof StringLiteral stringLiteral) return visitor.visitStringLiteralExpr(stringLiteral);
+    if (expr instanceof NullLiteral nullLiteral) return visitor.visitNullLiteralExpr(nullLiteral);
+    if (expr instanceof Unary unary) return visitor.visitUnaryExpr(unary);
+    if (expr instanceof Variable variable) return visitor.visitVariableExpr(variable);
+    if (expr instanceof Assign assign) return visitor.visitAssignExpr(assign);
+    throw new IllegalStateException("Unknown node: " + expr);
+  }
+}
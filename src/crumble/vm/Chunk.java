@@ -0,0 +1,71 @@
+package crumble.vm;
+
+/**
+ * A compiled expression: a flat bytecode array plus its constant pools.
+ *
+ * Number literals live in their own primitive pool so the VM can push them without
+ * unboxing; every other literal, and the name of every variable read, lives in
+ * {@link #constants}. A chunk is never modified after the {@link Compiler} has built
+ * it, so one chunk can be run by many VMs at once.
+ */
+public final class Chunk {
+    final byte[] code;
+    final int[] lines;          // Source line of each code byte, for runtime errors
+    final double[] numbers;     // Pool for OpCode.NUMBER
+    final Object[] constants;   // Pool for OpCode.CONSTANT and OpCode.GET_GLOBAL
+    final int maxStack;         // Deepest the operand stack gets while running
+
+    Chunk(byte[] code, int[] lines, double[] numbers, Object[] constants, int maxStack) {
+        this.code = code;
+        this.lines = lines;
+        this.numbers = numbers;
+        this.constants = constants;
+        this.maxStack = maxStack;
+    }
+
+    public int size() {
+        return code.length;
+    }
+
+    /**
+     * Estimates the heap this chunk holds on to, for caches bounded by size. It counts
+     * the arrays and the string constants, assuming compressed object pointers, and is
+     * not exact.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long estimatedBytes() {
+        long bytes = 24 + 4 * 16; // The chunk and the headers of its four arrays
+        bytes += code.length + 4L * lines.length + 8L * numbers.length + 4L * constants.length;
+        for (Object constant : constants) {
+            if (constant instanceof String) {
+                bytes += 40 + 2L * ((String) constant).length(); // Header, value array, UTF-16 worst case
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Renders the chunk as one instruction per line, for debugging.
+     *
+     * @return the disassembled bytecode.
+     */
+    public String disassemble() {
+        StringBuilder sb = new StringBuilder();
+        int ip = 0;
+        while (ip < code.length) {
+            byte op = code[ip];
+            sb.append(String.format("%04d %4d %s", ip, lines[ip], OpCode.name(op)));
+            if (OpCode.hasOperand(op)) {
+                int index = ((code[ip + 1] & 0xff) << 8) | (code[ip + 2] & 0xff);
+                Object value = op == OpCode.NUMBER ? (Object) numbers[index] : constants[index];
+                sb.append(' ').append(index).append(" '").append(value).append('\'');
+                ip += 3;
+            } else {
+                ip++;
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,324 @@
+package crumble.vm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Directory of compiled programs, so running an unchanged source again can skip
+ * scanning, parsing, folding and compiling.
+ *
+ * An entry holds every chunk compiled from one source. Its file name is the SHA-256
+ * of the source bytes, the charset they were decoded with and {@link Compiler#VERSION},
+ * so an edited source or a newer compiler simply misses. Entries are read through a
+ * memory mapping and written to a temporary file that is then renamed into place, so
+ * concurrent processes never see half an entry. An entry is not trusted: a CRC-32 over
+ * the whole entry catches truncation and flipped bits, every length is checked against
+ * the bytes left before anything is allocated, and every chunk's bytecode is verified
+ * before it is returned (known opcodes, operands inside their pools, a stack that stays
+ * within maxStack and ends in RETURN with one value). A file that fails any of these
+ * checks is treated as a miss.
+ *
+ * Entry layout, big-endian:
+ * <pre>
+ * magic "CRMB", int format, int chunk count, then per chunk:
+ *   int maxStack
+ *   int code length, code bytes
+ *   int line runs, (int run length, int line) per run
+ *   int number count, doubles
+ *   int constant count, per constant: int UTF-8 length, UTF-8 bytes
+ * int CRC-32 of every byte before it
+ * </pre>
+ */
+public final class ChunkCache {
+    private static final int MAGIC = 0x43524d42; // "CRMB"
+    private static final int FORMAT = 2;
+    private static final String SUFFIX = ".crmb";
+
+    private final Path directory;
+
+    /**
+     * @param directory where entries live; created on the first store.
+     */
+    public ChunkCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the key of a source. The buffer's position is left unchanged.
+     *
+     * @param source  the source bytes, as read from disk.
+     * @param charset the charset the source is decoded with.
+     * @return the key, as a hex string.
+     */
+    public String key(ByteBuffer source, Charset charset) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+        digest.update(source.duplicate());
+        digest.update(charset.name().getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) Compiler.VERSION);
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.append(".v").append(Compiler.VERSION).toString();
+    }
+
+    /**
+     * @param key a key from {@link #key}.
+     * @return the cached chunks, or null if there is no usable entry, including one that
+     *         is truncated, corrupt or fails verification.
+     * @throws IOException if an existing entry cannot be read.
+     */
+    public List<Chunk> load(String key) throws IOException {
+        ByteBuffer entry;
+        try (FileChannel channel = FileChannel.open(directory.resolve(key + SUFFIX), StandardOpenOption.READ)) {
+            entry = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        try {
+            return read(entry);
+        } catch (RuntimeException e) {
+            return null; // Truncated, corrupt or not an entry; it gets overwritten on the next store
+        }
+    }
+
+    /**
+     * Writes an entry, replacing any existing one.
+     *
+     * @param key    a key from {@link #key}.
+     * @param chunks the chunks compiled from the source, in order.
+     * @throws IOException              if the entry cannot be written.
+     * @throws IllegalArgumentException if a chunk has a constant that is not a string.
+     */
+    public void store(String key, List<Chunk> chunks) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temp, write(chunks));
+            try {
+                Files.move(temp, directory.resolve(key + SUFFIX),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, directory.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // ===================
+    // Serialization
+    // ===================
+
+    private static byte[] write(List<Chunk> chunks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeInt(chunks.size());
+
+        for (Chunk chunk : chunks) {
+            out.writeInt(chunk.maxStack);
+            out.writeInt(chunk.code.length);
+            out.write(chunk.code);
+
+            // Lines change rarely between neighbouring bytes, so store them as runs.
+            int[] lines = chunk.lines;
+            int runs = 0;
+            for (int i = 0; i < lines.length; i++) {
+                if (i == 0 || lines[i] != lines[i - 1]) runs++;
+            }
+            out.writeInt(runs);
+            for (int i = 0; i < lines.length; ) {
+                int end = i;
+                while (end < lines.length && lines[end] == lines[i]) end++;
+                out.writeInt(end - i);
+                out.writeInt(lines[i]);
+                i = end;
+            }
+
+            out.writeInt(chunk.numbers.length);
+            for (double number : chunk.numbers) {
+                out.writeDouble(number);
+            }
+
+            out.writeInt(chunk.constants.length);
+            for (Object constant : chunk.constants) {
+                if (!(constant instanceof String)) {
+                    throw new IllegalArgumentException("Only string constants can be cached, not " + constant);
+                }
+                byte[] utf8 = ((String) constant).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+        }
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<Chunk> read(ByteBuffer entry) {
+        if (entry.remaining() < Integer.BYTES) {
+            throw new IllegalArgumentException("Not a chunk cache entry");
+        }
+        ByteBuffer in = entry.duplicate();
+        in.limit(in.limit() - Integer.BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate());
+        if ((int) crc.getValue() != entry.getInt(in.limit())) {
+            throw new IllegalArgumentException("Entry does not match its checksum");
+        }
+
+        if (in.getInt() != MAGIC || in.getInt() != FORMAT) {
+            throw new IllegalArgumentException("Not a chunk cache entry");
+        }
+
+        int count = length(in, 5 * Integer.BYTES); // A chunk has at least five ints
+        List<Chunk> chunks = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            int maxStack = in.getInt();
+            byte[] code = new byte[length(in, 1)];
+            in.get(code);
+
+            int[] lines = new int[code.length];
+            int runs = length(in, 2 * Integer.BYTES);
+            int i = 0;
+            for (int r = 0; r < runs; r++) {
+                int length = in.getInt();
+                int line = in.getInt();
+                if (length < 0 || length > code.length - i) {
+                    throw new IllegalArgumentException("Line runs do not match the code");
+                }
+                for (int end = i + length; i < end; i++) lines[i] = line;
+            }
+            if (i != code.length) {
+                throw new IllegalArgumentException("Line runs do not match the code");
+            }
+
+            double[] numbers = new double[length(in, Double.BYTES)];
+            for (int n = 0; n < numbers.length; n++) {
+                numbers[n] = in.getDouble();
+            }
+
+            Object[] constants = new Object[length(in, Integer.BYTES)];
+            for (int k = 0; k < constants.length; k++) {
+                byte[] utf8 = new byte[length(in, 1)];
+                in.get(utf8);
+                constants[k] = new String(utf8, StandardCharsets.UTF_8);
+            }
+
+            verify(code, numbers.length, constants.length, maxStack);
+            chunks.add(new Chunk(code, lines, numbers, constants, maxStack));
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Bytes left after the last chunk");
+        }
+        return chunks;
+    }
+
+    /**
+     * Reads a count of elements that follow it in the entry.
+     *
+     * @param size the least number of bytes each element takes.
+     * @return the count, which is known to fit in the bytes left.
+     */
+    private static int length(ByteBuffer in, int size) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / size) {
+            throw new IllegalArgumentException("Length " + length + " runs past the end of the entry");
+        }
+        return length;
+    }
+
+    /**
+     * Checks that the VM can run the code without leaving its arrays: every opcode is
+     * known, every operand indexes into its pool, the stack never underflows or grows
+     * past maxStack, and the code ends with a RETURN of the only value on the stack.
+     */
+    private static void verify(byte[] code, int numberCount, int constantCount, int maxStack) {
+        if (maxStack < 1 || maxStack > code.length) {
+            throw new IllegalArgumentException("Bad maxStack " + maxStack);
+        }
+
+        int depth = 0;
+        int ip = 0;
+        while (ip < code.length) {
+            byte op = code[ip++];
+            if (op < OpCode.NUMBER || op > OpCode.GET_GLOBAL) {
+                throw new IllegalArgumentException("Unknown opcode " + op + " at " + (ip - 1));
+            }
+            if (OpCode.hasOperand(op)) {
+                if (code.length - ip < 2) {
+                    throw new IllegalArgumentException("Operand runs past the code at " + (ip - 1));
+                }
+                int index = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                if (index >= (op == OpCode.NUMBER ? numberCount : constantCount)) {
+                    throw new IllegalArgumentException("Operand " + index + " out of its pool at " + (ip - 1));
+                }
+                ip += 2;
+            }
+
+            int pops;
+            int pushes;
+            switch (op) {
+                case OpCode.NUMBER:
+                case OpCode.CONSTANT:
+                case OpCode.NULL:
+                case OpCode.TRUE:
+                case OpCode.FALSE:
+                case OpCode.GET_GLOBAL:
+                    pops = 0;
+                    pushes = 1;
+                    break;
+                case OpCode.NEGATE:
+                case OpCode.NOT:
+                    pops = 1;
+                    pushes = 1;
+                    break;
+                case OpCode.RETURN:
+                    if (depth != 1 || ip != code.length) {
+                        throw new IllegalArgumentException("RETURN must end the code with one value");
+                    }
+                    return;
+                default: // Binary operators
+                    pops = 2;
+                    pushes = 1;
+            }
+            if (depth < pops) {
+                throw new IllegalArgumentException("Stack underflow at " + (ip - 1));
+            }
+            depth += pushes - pops;
+            if (depth > maxStack) {
+                throw new IllegalArgumentException("Stack exceeds maxStack at " + (ip - 1));
+            }
+        }
+        throw new IllegalArgumentException("Code does not end with RETURN");
+    }
+}
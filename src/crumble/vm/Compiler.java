@@ -0,0 +1,329 @@
+package crumble.vm;
+
+import crumble.Expr;
+import crumble.ExprArena;
+import crumble.scanner.Position;
+import crumble.scanner.TokenType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles an {@link Expr} tree into a {@link Chunk} of stack-machine bytecode.
+ *
+ * Operands are emitted before their operator (post-order), so the VM never has to
+ * look at the tree again. The walk keeps its own stack of nodes still to visit rather
+ * than recursing, so trees nested millions of levels deep compile without overflowing
+ * the Java stack. Equal literals share a single constant pool entry.
+ * A compiler instance builds exactly one chunk.
+ *
+ * The VM has no instruction that stores a variable, so assignment, which only the
+ * REPL's {@link crumble.parser.StatementParser} produces, is rejected rather than
+ * compiled; the shared parsers never build it.
+ */
+public class Compiler implements Expr.Visitor<Void> {
+    /**
+     * Version of the bytecode this compiler emits, including how trees are optimized
+     * before compiling. Bump it whenever either changes, so {@link ChunkCache} entries
+     * from older builds are not reused.
+     */
+    public static final int VERSION = 2;
+
+    private static final int MAX_CONSTANTS = 1 << 16; // Constant indices are two bytes
+
+    private byte[] code = new byte[64];
+    private int[] lines = new int[64];
+    private int count = 0;
+
+    private double[] numbers = new double[8];
+    private int numberCount = 0;
+    private final Map<Double, Integer> numberIndex = new HashMap<>();
+
+    private Object[] constants = new Object[8];
+    private int constantCount = 0;
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+    // Nodes still to visit. A node marked ready has had its operands emitted and only
+    // its operator is left.
+    private Expr[] pending = new Expr[16];
+    private boolean[] ready = new boolean[16];
+    private int pendingCount = 0;
+
+    private int line = 1;      // Line of the most recent operator, stamped on emitted code
+    private int stackDepth = 0;
+    private int maxStack = 0;
+
+    /**
+     * Compiles the expression into a chunk that evaluates it and returns its value.
+     *
+     * @param expression the expression to compile.
+     * @return the compiled chunk.
+     * @throws IllegalArgumentException if the expression assigns to a variable.
+     */
+    public Chunk compile(Expr expression) {
+        push(expression, false);
+        while (pendingCount > 0) {
+            int top = --pendingCount;
+            Expr expr = pending[top];
+            pending[top] = null;
+            if (ready[top]) {
+                emitOperator(expr);
+            } else {
+                expr.accept(this);
+            }
+        }
+        return finish();
+    }
+
+    /**
+     * Compiles a tree stored in an arena, reading its arrays directly rather than
+     * materializing Expr objects.
+     *
+     * @param arena the arena holding the tree.
+     * @param root  the ID of the tree's root node.
+     * @return the compiled chunk.
+     */
+    public Chunk compile(ExprArena arena, int root) {
+        int[] nodes = new int[16]; // Nodes to visit; ~id once only the operator is left
+        int nodeCount = 0;
+
+        nodes[nodeCount++] = root;
+        while (nodeCount > 0) {
+            if (nodeCount + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+            }
+
+            int entry = nodes[--nodeCount];
+            if (entry < 0) {
+                int node = ~entry;
+                if (arena.kind(node) == ExprArena.BINARY) {
+                    emitBinary(arena.operator(node), arena.line(node));
+                } else {
+                    emitUnary(arena.operator(node), arena.line(node));
+                }
+                continue;
+            }
+
+            switch (arena.kind(entry)) {
+                case ExprArena.LITERAL:
+                    switch (arena.operator(entry)) {
+                        case NUMBER: emitWithIndex(OpCode.NUMBER, addNumber(arena.number(entry))); break;
+                        case STRING: emitWithIndex(OpCode.CONSTANT, addConstant(arena.literal(entry))); break;
+                        case TRUE: emit(OpCode.TRUE, 1); break;
+                        case FALSE: emit(OpCode.FALSE, 1); break;
+                        default: emit(OpCode.NULL, 1);
+                    }
+                    break;
+                case ExprArena.BINARY:
+                    nodes[nodeCount++] = ~entry;
+                    nodes[nodeCount++] = arena.right(entry);
+                    nodes[nodeCount++] = arena.left(entry);
+                    break;
+                case ExprArena.GROUPING:
+                    nodes[nodeCount++] = arena.expression(entry);
+                    break;
+                case ExprArena.VARIABLE:
+                    emitGetGlobal(arena.name(entry), arena.line(entry));
+                    break;
+                default:
+                    nodes[nodeCount++] = ~entry;
+                    nodes[nodeCount++] = arena.right(entry);
+            }
+        }
+        return finish();
+    }
+
+    private Chunk finish() {
+        emit(OpCode.RETURN, -1);
+
+        return new Chunk(
+                Arrays.copyOf(code, count),
+                Arrays.copyOf(lines, count),
+                Arrays.copyOf(numbers, numberCount),
+                Arrays.copyOf(constants, constantCount),
+                maxStack);
+    }
+
+    // ===================
+    // Expression Visitors
+    // ===================
+
+    // Each visitor pushes its children so that the leftmost one is visited first.
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        push(expr, true);
+        push(expr.right, false);
+        push(expr.left, false);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        push(expr.expression, false);
+        return null;
+    }
+
+    @Override
+    public Void visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        emitWithIndex(OpCode.NUMBER, addNumber(expr.value));
+        return null;
+    }
+
+    @Override
+    public Void visitBooleanLiteralExpr(Expr.BooleanLiteral expr) {
+        emit(expr.value ? OpCode.TRUE : OpCode.FALSE, 1);
+        return null;
+    }
+
+    @Override
+    public Void visitStringLiteralExpr(Expr.StringLiteral expr) {
+        emitWithIndex(OpCode.CONSTANT, addConstant(expr.value));
+        return null;
+    }
+
+    @Override
+    public Void visitNullLiteralExpr(Expr.NullLiteral expr) {
+        emit(OpCode.NULL, 1);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        push(expr, true);
+        push(expr.right, false);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        emitGetGlobal(expr.name, Position.line(expr.position));
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        throw new IllegalArgumentException("The VM cannot assign to variables: " + expr.name);
+    }
+
+    private void push(Expr expr, boolean operatorOnly) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+            ready = Arrays.copyOf(ready, pendingCount * 2);
+        }
+        pending[pendingCount] = expr;
+        ready[pendingCount] = operatorOnly;
+        pendingCount++;
+    }
+
+    /**
+     * Emits the operator of a Binary or Unary node whose operands are already on the stack.
+     */
+    private void emitOperator(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            emitBinary(binary.operator, Position.line(binary.position));
+        } else {
+            Expr.Unary unary = (Expr.Unary) expr;
+            emitUnary(unary.operator, Position.line(unary.position));
+        }
+    }
+
+    private void emitBinary(TokenType operator, int operatorLine) {
+        line = operatorLine;
+        switch (operator) {
+            case PLUS: emit(OpCode.ADD, -1); break;
+            case MINUS: emit(OpCode.SUBTRACT, -1); break;
+            case STAR: emit(OpCode.MULTIPLY, -1); break;
+            case SLASH: emit(OpCode.DIVIDE, -1); break;
+            case GREATER: emit(OpCode.GREATER, -1); break;
+            case GREATER_EQUAL: emit(OpCode.GREATER_EQUAL, -1); break;
+            case LESS: emit(OpCode.LESS, -1); break;
+            case LESS_EQUAL: emit(OpCode.LESS_EQUAL, -1); break;
+            case EQUAL_EQUAL: emit(OpCode.EQUAL, -1); break;
+            case BANG_EQUAL: emit(OpCode.NOT_EQUAL, -1); break;
+            default:
+                throw new IllegalArgumentException("Unknown binary operator: " + operator);
+        }
+    }
+
+    private void emitUnary(TokenType operator, int operatorLine) {
+        line = operatorLine;
+        switch (operator) {
+            case MINUS: emit(OpCode.NEGATE, 0); break;
+            case BANG: emit(OpCode.NOT, 0); break;
+            default:
+                throw new IllegalArgumentException("Unknown unary operator: " + operator);
+        }
+    }
+
+    private void emitGetGlobal(String name, int nameLine) {
+        line = nameLine;
+        emitWithIndex(OpCode.GET_GLOBAL, addConstant(name));
+    }
+
+    // ===================
+    // Code Emission
+    // ===================
+
+    /**
+     * Appends a single-byte instruction.
+     *
+     * @param op the opcode.
+     * @param stackEffect how many values the instruction leaves on the stack, net.
+     */
+    private void emit(byte op, int stackEffect) {
+        writeByte(op);
+        stackDepth += stackEffect;
+        maxStack = Math.max(maxStack, stackDepth);
+    }
+
+    private void emitWithIndex(byte op, int index) {
+        emit(op, 1);
+        writeByte((byte) (index >>> 8));
+        writeByte((byte) index);
+    }
+
+    private void writeByte(byte b) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+            lines = Arrays.copyOf(lines, count * 2);
+        }
+        code[count] = b;
+        lines[count] = line;
+        count++;
+    }
+
+    private int addNumber(double value) {
+        Integer existing = numberIndex.get(value);
+        if (existing != null) return existing;
+
+        checkPoolSize(numberCount);
+        if (numberCount == numbers.length) {
+            numbers = Arrays.copyOf(numbers, numberCount * 2);
+        }
+        numbers[numberCount] = value;
+        numberIndex.put(value, numberCount);
+        return numberCount++;
+    }
+
+    private int addConstant(Object value) {
+        Integer existing = constantIndex.get(value);
+        if (existing != null) return existing;
+
+        checkPoolSize(constantCount);
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        constantIndex.put(value, constantCount);
+        return constantCount++;
+    }
+
+    private void checkPoolSize(int size) {
+        if (size >= MAX_CONSTANTS) {
+            throw new IllegalStateException("Too many constants in one chunk.");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package crumble.vm;
+
+/**
+ * Instruction set of the Crumble virtual machine.
+ *
+ * Opcodes are plain byte constants rather than an enum so that the VM's dispatch
+ * switch compiles to a table jump on the raw code byte. Instructions marked with
+ * an operand are followed by a two-byte, big-endian constant pool index.
+ */
+public final class OpCode {
+    public static final byte NUMBER = 0;        // operand: index into Chunk.numbers
+    public static final byte CONSTANT = 1;      // operand: index into Chunk.constants
+    public static final byte NULL = 2;
+    public static final byte TRUE = 3;
+    public static final byte FALSE = 4;
+
+    public static final byte ADD = 5;
+    public static final byte SUBTRACT = 6;
+    public static final byte MULTIPLY = 7;
+    public static final byte DIVIDE = 8;
+    public static final byte NEGATE = 9;
+    public static final byte NOT = 10;
+
+    public static final byte EQUAL = 11;
+    public static final byte NOT_EQUAL = 12;
+    public static final byte GREATER = 13;
+    public static final byte GREATER_EQUAL = 14;
+    public static final byte LESS = 15;
+    public static final byte LESS_EQUAL = 16;
+
+    public static final byte RETURN = 17;
+
+    public static final byte GET_GLOBAL = 18;   // operand: index of the name in Chunk.constants
+
+    private OpCode() {
+    }
+
+    /**
+     * Returns the mnemonic of an opcode, for disassembly.
+     *
+     * @param op the opcode.
+     * @return the name of the opcode.
+     */
+    public static String name(byte op) {
+        switch (op) {
+            case NUMBER: return "NUMBER";
+            case CONSTANT: return "CONSTANT";
+            case NULL: return "NULL";
+            case TRUE: return "TRUE";
+            case FALSE: return "FALSE";
+            case ADD: return "ADD";
+            case SUBTRACT: return "SUBTRACT";
+            case MULTIPLY: return "MULTIPLY";
+            case DIVIDE: return "DIVIDE";
+            case NEGATE: return "NEGATE";
+            case NOT: return "NOT";
+            case EQUAL: return "EQUAL";
+            case NOT_EQUAL: return "NOT_EQUAL";
+            case GREATER: return "GREATER";
+            case GREATER_EQUAL: return "GREATER_EQUAL";
+            case LESS: return "LESS";
+            case LESS_EQUAL: return "LESS_EQUAL";
+            case RETURN: return "RETURN";
+            case GET_GLOBAL: return "GET_GLOBAL";
+            default: return "UNKNOWN(" + op + ")";
+        }
+    }
+
+    /**
+     * Returns whether the opcode is followed by a two-byte constant index.
+     *
+     * @param op the opcode.
+     * @return true if the instruction carries an operand.
+     */
+    public static boolean hasOperand(byte op) {
+        return op == NUMBER || op == CONSTANT || op == GET_GLOBAL;
+    }
+}
@@ -0,0 +1,223 @@
+package crumble.vm;
+
+import crumble.interpreter.Interpreter;
+import crumble.interpreter.RuntimeError;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Stack machine that executes {@link Chunk}s produced by the {@link Compiler}.
+ *
+ * The operand stack is split into two parallel arrays. A slot holding a number has
+ * the {@link #NUMBER} marker in {@code values} and the number itself in
+ * {@code numbers}, so arithmetic runs on primitives and only the final result is
+ * boxed. The stacks are reused between runs, so an instance must not be shared
+ * between threads.
+ */
+public class VM {
+    /** Marker stored in a value slot whose number lives in the parallel number slot. */
+    private static final Object NUMBER = new Object();
+
+    private Object[] values = new Object[16];
+    private double[] numbers = new double[16];
+
+    /**
+     * Runs the chunk and prints its value.
+     *
+     * @param chunk the compiled expression.
+     * @throws RuntimeError if the chunk fails; nothing is printed.
+     */
+    public void interpret(Chunk chunk) {
+        Object value = run(chunk);
+        System.out.println(Interpreter.stringify(value));
+    }
+
+    /**
+     * Runs the chunk to a plain Java value: a Double, Boolean, String or null.
+     *
+     * @param chunk the compiled expression.
+     * @return the value left on the stack by the RETURN instruction.
+     */
+    public Object run(Chunk chunk) {
+        return run(chunk, Collections.emptyMap());
+    }
+
+    /**
+     * Runs the chunk with values for the variables it reads. Any {@link Number} is read
+     * as a double; other values are used as they are.
+     *
+     * @param chunk   the compiled expression.
+     * @param globals the value of each variable, by name; only read.
+     * @return the value left on the stack by the RETURN instruction.
+     */
+    public Object run(Chunk chunk, Map<String, ?> globals) {
+        if (values.length < chunk.maxStack) {
+            values = new Object[chunk.maxStack];
+            numbers = new double[chunk.maxStack];
+        }
+
+        final byte[] code = chunk.code;
+        final double[] pool = chunk.numbers;
+        final Object[] constants = chunk.constants;
+        final Object[] values = this.values;
+        final double[] numbers = this.numbers;
+        int ip = 0;
+        int sp = 0; // Next free stack slot
+
+        while (true) {
+            byte op = code[ip++];
+            switch (op) {
+                case OpCode.NUMBER:
+                    values[sp] = NUMBER;
+                    numbers[sp++] = pool[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    break;
+                case OpCode.CONSTANT:
+                    values[sp++] = constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    break;
+                case OpCode.NULL:
+                    values[sp++] = null;
+                    break;
+                case OpCode.TRUE:
+                    values[sp++] = Boolean.TRUE;
+                    break;
+                case OpCode.FALSE:
+                    values[sp++] = Boolean.FALSE;
+                    break;
+
+                case OpCode.ADD:
+                    sp--;
+                    if (values[sp - 1] == NUMBER && values[sp] == NUMBER) {
+                        numbers[sp - 1] += numbers[sp];
+                    } else if (values[sp - 1] instanceof String && values[sp] instanceof String) {
+                        values[sp - 1] = (String) values[sp - 1] + values[sp];
+                    } else {
+                        throw error(chunk, ip, "Operands must be two numbers or two strings.");
+                    }
+                    break;
+                case OpCode.SUBTRACT:
+                    sp--;
+                    checkNumberOperands(chunk, ip, sp);
+                    numbers[sp - 1] -= numbers[sp];
+                    break;
+                case OpCode.MULTIPLY:
+                    sp--;
+                    checkNumberOperands(chunk, ip, sp);
+                    numbers[sp - 1] *= numbers[sp];
+                    break;
+                case OpCode.DIVIDE:
+                    sp--;
+                    checkNumberOperands(chunk, ip, sp);
+                    numbers[sp - 1] /= numbers[sp];
+                    break;
+                case OpCode.NEGATE:
+                    if (values[sp - 1] != NUMBER) {
+                        throw error(chunk, ip, "Operand must be a number.");
+                    }
+                    numbers[sp - 1] = -numbers[sp - 1];
+                    break;
+                case OpCode.NOT:
+                    values[sp - 1] = isTruthy(values[sp - 1]) ? Boolean.FALSE : Boolean.TRUE;
+                    break;
+
+                case OpCode.EQUAL:
+                    sp--;
+                    values[sp - 1] = isEqual(sp - 1, sp) ? Boolean.TRUE : Boolean.FALSE;
+                    break;
+                case OpCode.NOT_EQUAL:
+                    sp--;
+                    values[sp - 1] = isEqual(sp - 1, sp) ? Boolean.FALSE : Boolean.TRUE;
+                    break;
+                case OpCode.GREATER:
+                    sp--;
+                    checkNumberOperands(chunk, ip, sp);
+                    values[sp - 1] = numbers[sp - 1] > numbers[sp] ? Boolean.TRUE : Boolean.FALSE;
+                    break;
+                case OpCode.GREATER_EQUAL:
+                    sp--;
+                    checkNumberOperands(chunk, ip, sp);
+                    values[sp - 1] = numbers[sp - 1] >= numbers[sp] ? Boolean.TRUE : Boolean.FALSE;
+                    break;
+                case OpCode.LESS:
+                    sp--;
+                    checkNumberOperands(chunk, ip, sp);
+                    values[sp - 1] = numbers[sp - 1] < numbers[sp] ? Boolean.TRUE : Boolean.FALSE;
+                    break;
+                case OpCode.LESS_EQUAL:
+                    sp--;
+                    checkNumberOperands(chunk, ip, sp);
+                    values[sp - 1] = numbers[sp - 1] <= numbers[sp] ? Boolean.TRUE : Boolean.FALSE;
+                    break;
+
+                case OpCode.GET_GLOBAL: {
+                    String name = (String) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    Object value = globals.get(name);
+                    if (value == null && !globals.containsKey(name)) {
+                        throw error(chunk, ip, "Undefined variable '" + name + "'.");
+                    }
+                    if (value instanceof Number) {
+                        values[sp] = NUMBER;
+                        numbers[sp++] = ((Number) value).doubleValue();
+                    } else {
+                        values[sp++] = value;
+                    }
+                    ip += 2;
+                    break;
+                }
+
+                case OpCode.RETURN:
+                    sp--;
+                    return values[sp] == NUMBER ? Double.valueOf(numbers[sp]) : values[sp];
+
+                default:
+                    throw error(chunk, ip, "Unknown opcode " + op + ".");
+            }
+        }
+    }
+
+    // ===================
+    // Helpers
+    // ===================
+
+    /**
+     * Checks the two operands of a binary instruction, found at {@code right - 1} and {@code right}.
+     */
+    private void checkNumberOperands(Chunk chunk, int ip, int right) {
+        if (values[right - 1] == NUMBER && values[right] == NUMBER) return;
+        throw error(chunk, ip, "Operands must be numbers.");
+    }
+
+    /**
+     * Null and false are falsey; everything else, including every number, is truthy.
+     */
+    private static boolean isTruthy(Object value) {
+        if (value == null) return false;
+        if (value instanceof Boolean) return (Boolean) value;
+        return true;
+    }
+
+    /**
+     * Same semantics as {@code Objects.equals} on boxed values, without boxing numbers.
+     */
+    private boolean isEqual(int left, int right) {
+        Object a = values[left];
+        Object b = values[right];
+        if (a == NUMBER || b == NUMBER) {
+            return a == b
+                    && Double.doubleToLongBits(numbers[left]) == Double.doubleToLongBits(numbers[right]);
+        }
+        if (a == null) return b == null;
+        return a.equals(b);
+    }
+
+    /**
+     * Builds a runtime error for the instruction that was just decoded.
+     *
+     * @param ip the instruction pointer, already advanced past the opcode.
+     */
+    private static RuntimeError error(Chunk chunk, int ip, String message) {
+        return new RuntimeError(chunk.lines[ip - 1], message);
+    }
+}
@@ -2,36 +2,157 @@ package tool;
 
 import crumble.Expr;
 
-public class ASTPrettyPrinter implements Expr.Visitor<String>{
+import java.util.Arrays;
+
+public class ASTPrettyPrinter implements Expr.Visitor<String> {
+    // print() walks with its own stacks, so deep trees do not overflow the Java stack:
+    // nodes still to print, flagged once their children are printed, and the printed
+    // children. The visit methods recurse, as any Expr.Visitor may, and share the node
+    // layouts below with it.
+    private Expr[] pending = new Expr[16];
+    private boolean[] ready = new boolean[16];
+    private int pendingCount = 0;
+    private String[] printed = new String[16];
+    private int printedCount = 0;
 
     // Public method to pretty-print the tree
     public String print(Expr expr) {
-        return expr.accept(this);
+        push(expr, false);
+        while (pendingCount > 0) {
+            int top = --pendingCount;
+            Expr node = pending[top];
+            pending[top] = null;
+
+            if (ready[top]) {
+                addPrinted(printReady(node));
+            } else if (node instanceof Expr.Binary) {
+                push(node, true);
+                push(((Expr.Binary) node).right, false);
+                push(((Expr.Binary) node).left, false);
+            } else if (node instanceof Expr.Unary) {
+                push(node, true);
+                push(((Expr.Unary) node).right, false);
+            } else if (node instanceof Expr.Grouping) {
+                push(node, true);
+                push(((Expr.Grouping) node).expression, false);
+            } else if (node instanceof Expr.Assign) {
+                push(node, true);
+                push(((Expr.Assign) node).value, false);
+            } else {
+                addPrinted(node.accept(this)); // A leaf
+            }
+        }
+        return pop();
     }
 
     @Override
     public String visitBinaryExpr(Expr.Binary expr) {
-        return buildTree("Binary",
-                buildNode("Operator", expr.operator.getLexeme()),
-                expr.left.accept(this),
-                expr.right.accept(this));
+        return binary(expr, expr.left.accept(this), expr.right.accept(this));
     }
 
     @Override
     public String visitGroupingExpr(Expr.Grouping expr) {
-        return buildTree("Grouping", expr.expression.accept(this));
+        return grouping(expr.expression.accept(this));
+    }
+
+    @Override
+    public String visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        return buildNode("Literal", String.valueOf(expr.value));
+    }
+
+    @Override
+    public String visitBooleanLiteralExpr(Expr.BooleanLiteral expr) {
+        return buildNode("Literal", String.valueOf(expr.value));
     }
 
     @Override
-    public String visitLiteralExpr(Expr.Literal expr) {
-        return buildNode("Literal", expr.value == null ? "null" : expr.value.toString());
+    public String visitStringLiteralExpr(Expr.StringLiteral expr) {
+        return buildNode("Literal", expr.value);
+    }
+
+    @Override
+    public String visitNullLiteralExpr(Expr.NullLiteral expr) {
+        return buildNode("Literal", "null");
     }
 
     @Override
     public String visitUnaryExpr(Expr.Unary expr) {
+        return unary(expr, expr.right.accept(this));
+    }
+
+    @Override
+    public String visitVariableExpr(Expr.Variable expr) {
+        return buildNode("Variable", expr.name);
+    }
+
+    @Override
+    public String visitAssignExpr(Expr.Assign expr) {
+        return assign(expr, expr.value.accept(this));
+    }
+
+    // ===================
+    // Node Layouts
+    // ===================
+
+    /**
+     * Prints a node whose children print() has already printed, which are on top of
+     * the printed stack, rightmost last.
+     */
+    private String printReady(Expr node) {
+        if (node instanceof Expr.Binary) {
+            String right = pop();
+            return binary((Expr.Binary) node, pop(), right);
+        }
+        if (node instanceof Expr.Unary) return unary((Expr.Unary) node, pop());
+        if (node instanceof Expr.Grouping) return grouping(pop());
+        return assign((Expr.Assign) node, pop());
+    }
+
+    private String binary(Expr.Binary expr, String left, String right) {
+        return buildTree("Binary",
+                buildNode("Operator", expr.operator.getText()),
+                left,
+                right);
+    }
+
+    private String grouping(String expression) {
+        return buildTree("Grouping", expression);
+    }
+
+    private String unary(Expr.Unary expr, String right) {
         return buildTree("Unary",
-                buildNode("Operator", expr.operator.getLexeme()),
-                expr.right.accept(this));
+                buildNode("Operator", expr.operator.getText()),
+                right);
+    }
+
+    private String assign(Expr.Assign expr, String value) {
+        return buildTree("Assign",
+                buildNode("Name", expr.name),
+                value);
+    }
+
+    private void push(Expr expr, boolean childrenPrinted) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+            ready = Arrays.copyOf(ready, pendingCount * 2);
+        }
+        pending[pendingCount] = expr;
+        ready[pendingCount] = childrenPrinted;
+        pendingCount++;
+    }
+
+    private void addPrinted(String text) {
+        if (printedCount == printed.length) {
+            printed = Arrays.copyOf(printed, printedCount * 2);
+        }
+        printed[printedCount++] = text;
+    }
+
+    // The most recently printed child of the node being printed
+    private String pop() {
+        String text = printed[--printedCount];
+        printed[printedCount] = null;
+        return text;
     }
 
     // Helper method to build a single node with a label and optional value
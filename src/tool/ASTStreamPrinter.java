@@ -0,0 +1,264 @@
+package tool;
+
+import crumble.Expr;
+import crumble.Stmt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the same text as {@link ASTPrettyPrinter}, but straight to an
+ * {@link Appendable} in a single pass.
+ *
+ * ASTPrettyPrinter builds a String per subtree and copies it once per ancestor, which
+ * is quadratic in the depth of the tree. Here every line is written once: a line of a
+ * node at depth d is d - 1 continuation bars followed by the node's connector, or d
+ * bars on a node's later lines, since ASTPrettyPrinter uses a bar even under the last
+ * child. The bars are sliced from one shared String. The walk keeps its own stack of
+ * pending nodes, so deep trees do not overflow the Java stack.
+ *
+ * Statements are printed in the same layout, with a statement's expressions nested
+ * under it and a block's statements under the block.
+ */
+public class ASTStreamPrinter implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private static final String BAR = "│   ";
+    private static final String BRANCH = "├── ";
+    private static final String LAST_BRANCH = "└── ";
+
+    // Nodes still to print: an Expr, a Stmt, or the String of a line. Depth and
+    // whether it is its parent's last child are kept alongside.
+    private Object[] pending = new Object[16];
+    private int[] depths = new int[16];
+    private boolean[] lasts = new boolean[16];
+    private int pendingCount = 0;
+
+    private String bars = ""; // BAR repeated, at least as deep as the tree has gone so far
+    private Appendable out;
+    private int depth;   // Depth of the node being visited
+    private boolean last; // Whether the node being visited is its parent's last child
+
+    /**
+     * Prints a tree. As with {@link ASTPrettyPrinter#print}, every line of a tree ends
+     * with a newline, but a lone literal or variable is written as is.
+     *
+     * @param expr the tree to print.
+     * @param out  where to write it.
+     * @throws IOException if {@code out} fails.
+     */
+    public void print(Expr expr, Appendable out) throws IOException {
+        String leaf = leafText(expr);
+        if (leaf != null) {
+            out.append(leaf);
+            return;
+        }
+        walk(expr, out);
+    }
+
+    /**
+     * Prints a statement and everything in it. Every line ends with a newline.
+     *
+     * @param stmt the statement to print.
+     * @param out  where to write it.
+     * @throws IOException if {@code out} fails.
+     */
+    public void print(Stmt stmt, Appendable out) throws IOException {
+        walk(stmt, out);
+    }
+
+    private void walk(Object root, Appendable out) throws IOException {
+        this.out = out;
+        try {
+            push(root, 0, true);
+            while (pendingCount > 0) {
+                int top = --pendingCount;
+                Object node = pending[top];
+                pending[top] = null;
+                depth = depths[top];
+                last = lasts[top];
+
+                if (node instanceof Expr) {
+                    ((Expr) node).accept(this);
+                } else if (node instanceof Stmt) {
+                    ((Stmt) node).accept(this);
+                } else {
+                    line((String) node);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Arrays.fill(pending, 0, pendingCount, null); // Left over if out failed
+            pendingCount = 0;
+            this.out = null;
+        }
+    }
+
+    // ===================
+    // Expression Visitors
+    // ===================
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        line("Binary");
+        push(expr.right, depth + 1, true);
+        push(expr.left, depth + 1, false);
+        push("Operator: " + expr.operator.getText(), depth + 1, false);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        line("Grouping");
+        push(expr.expression, depth + 1, true);
+        return null;
+    }
+
+    @Override
+    public Void visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        line(leafText(expr));
+        return null;
+    }
+
+    @Override
+    public Void visitBooleanLiteralExpr(Expr.BooleanLiteral expr) {
+        line(leafText(expr));
+        return null;
+    }
+
+    @Override
+    public Void visitStringLiteralExpr(Expr.StringLiteral expr) {
+        line(leafText(expr));
+        return null;
+    }
+
+    @Override
+    public Void visitNullLiteralExpr(Expr.NullLiteral expr) {
+        line(leafText(expr));
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        line("Unary");
+        push(expr.right, depth + 1, true);
+        push("Operator: " + expr.operator.getText(), depth + 1, false);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        line(leafText(expr));
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        line("Assign");
+        push(expr.value, depth + 1, true);
+        push("Name: " + expr.name, depth + 1, false);
+        return null;
+    }
+
+    // ===================
+    // Statement Visitors
+    // ===================
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        line("Block");
+        List<Stmt> statements = stmt.statements;
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            push(statements.get(i), depth + 1, i == statements.size() - 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        line("Expression");
+        push(stmt.expression, depth + 1, true);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        line("Print");
+        push(stmt.expression, depth + 1, true);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        line("Var");
+        if (stmt.initializer != null) push(stmt.initializer, depth + 1, true);
+        push("Name: " + stmt.name, depth + 1, stmt.initializer == null);
+        return null;
+    }
+
+    // ===================
+    // Output
+    // ===================
+
+    /**
+     * @return the text of a literal or variable node, or null for any other node.
+     */
+    private static String leafText(Expr expr) {
+        if (expr instanceof Expr.NumberLiteral) return "Literal: " + ((Expr.NumberLiteral) expr).value;
+        if (expr instanceof Expr.BooleanLiteral) return "Literal: " + ((Expr.BooleanLiteral) expr).value;
+        if (expr instanceof Expr.StringLiteral) return "Literal: " + ((Expr.StringLiteral) expr).value;
+        if (expr instanceof Expr.NullLiteral) return "Literal: null";
+        if (expr instanceof Expr.Variable) return "Variable: " + ((Expr.Variable) expr).name;
+        return null;
+    }
+
+    /**
+     * Writes the text of the current node, prefixed for its depth. Text containing
+     * newlines is split into lines the way ASTPrettyPrinter's {@code String.split}
+     * does, which drops trailing empty lines.
+     */
+    private void line(String text) {
+        try {
+            int end = text.length();
+            while (end > 0 && text.charAt(end - 1) == '\n') end--;
+
+            int start = 0;
+            boolean first = true;
+            while (true) {
+                int newline = text.indexOf('\n', start);
+                if (newline < 0 || newline > end) newline = end;
+
+                if (depth > 0) {
+                    if (first) {
+                        out.append(bars, 0, (depth - 1) * BAR.length()).append(last ? LAST_BRANCH : BRANCH);
+                    } else {
+                        out.append(bars, 0, depth * BAR.length());
+                    }
+                }
+                out.append(text, start, newline).append('\n');
+
+                if (newline == end) break;
+                start = newline + 1;
+                first = false;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void push(Object node, int nodeDepth, boolean isLast) {
+        if (bars.length() < nodeDepth * BAR.length()) {
+            bars = BAR.repeat(Math.max(nodeDepth, 2 * bars.length() / BAR.length()));
+        }
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+            depths = Arrays.copyOf(depths, pendingCount * 2);
+            lasts = Arrays.copyOf(lasts, pendingCount * 2);
+        }
+        pending[pendingCount] = node;
+        depths[pendingCount] = nodeDepth;
+        lasts[pendingCount] = isLast;
+        pendingCount++;
+    }
+}
@@ -11,30 +11,60 @@ import java.util.List;
  * Utility to generate Abstract Syntax Tree (AST) classes for a language.
  * This script generates an abstract base class and its subclasses for different
  * types of syntax tree nodes, along with a visitor interface for traversing them.
+ *
+ * Fields after a {@code |} in a type definition are not constructor parameters but
+ * annotations written by the {@link crumble.interpreter.Resolver}. They are private,
+ * read through getters and written once through {@code annotate}, which takes the
+ * resolver as a token, so only the interpreter that resolved a tree can annotate it.
+ * Every statement also records which resolver it belongs to.
+ *
+ * With {@code --sealed} it instead generates a sealed interface in package
+ * {@code crumble.sealed} whose node types are records, which code can take apart with
+ * instanceof patterns rather than a double dispatch through accept().
  */
 public class GenerateAST {
+    private static final List<String> EXPR_TYPES = Arrays.asList(
+            "Binary         : Expr left, TokenType operator, long position, Expr right",
+            "Grouping       : Expr expression",
+            "NumberLiteral  : double value",
+            "BooleanLiteral : boolean value",
+            "StringLiteral  : String value",
+            "NullLiteral    : ",
+            "Unary          : TokenType operator, long position, Expr right",
+            "Variable       : String name, long position | int depth = -1, int slot = -1",
+            "Assign         : String name, long position, Expr value | int depth = -1, int slot = -1"
+    );
+
+    private static final List<String> STMT_TYPES = Arrays.asList(
+            "Block      : List<Stmt> statements | int slots = -1",
+            "Expression : Expr expression",
+            "Print      : Expr expression",
+            "Var        : String name, long position, Expr initializer | int slot = -1"
+    );
 
     /**
      * Entry point of the utility.
      *
-     * @param args The output directory where the generated files should be written.
+     * @param args An optional {@code --sealed} flag, then the output directory where the
+     *             generated files should be written.
      * @throws IOException If there is an issue writing to the file.
      */
     public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
-            System.err.println("Usage: generate_ast <output directory>");
+        boolean sealed = args.length == 2 && args[0].equals("--sealed");
+        if (args.length != 1 && !sealed) {
+            System.err.println("Usage: generate_ast [--sealed] <output directory>");
             System.exit(64); // Exit code for command-line usage error
         }
 
-        String outputDir = args[0];
+        String outputDir = args[args.length - 1];
 
-        // Define AST structure for the 'Expr' base class.
-        defineAST(outputDir, "Expr", Arrays.asList(
-                "Binary   : Expr left, Token operator, Expr right",
-                "Grouping : Expr expression",
-                "Literal  : Object value",
-                "Unary    : Token operator, Expr right"
-        ));
+        // Define AST structure for the 'Expr' and 'Stmt' base classes.
+        if (sealed) {
+            defineSealedAST(outputDir, "Expr", EXPR_TYPES);
+        } else {
+            defineAST(outputDir, "Expr", EXPR_TYPES, false);
+            defineAST(outputDir, "Stmt", STMT_TYPES, true);
+        }
     }
 
     /**
@@ -43,10 +73,11 @@ public class GenerateAST {
      * @param outputDir The directory where the file will be generated.
      * @param baseName  The name of the base abstract class (e.g., Expr).
      * @param types     A list of type definitions in the format "ClassName: fields".
+     * @param owned     Whether every node records the resolver it belongs to.
      * @throws FileNotFoundException         If the file cannot be created.
      * @throws UnsupportedEncodingException If UTF-8 encoding is not supported.
      */
-    public static void defineAST(String outputDir, String baseName, List<String> types)
+    public static void defineAST(String outputDir, String baseName, List<String> types, boolean owned)
             throws FileNotFoundException, UnsupportedEncodingException {
         String path = outputDir + "/" + baseName + ".java";
         try (PrintWriter writer = new PrintWriter(path, "UTF-8")) {
@@ -54,15 +85,18 @@ public class GenerateAST {
             // Package declaration and imports
             writer.println("package crumble;");
             writer.println();
+            writer.println("import crumble.interpreter.Resolver;");
+            writer.println("import crumble.scanner.TokenType;");
+            writer.println();
             writer.println("import java.util.List;");
             writer.println();
 
             // Add the autogenerated docstring for the base class
             writer.println("/**");
             writer.println(" * This is an autogenerated class representing an abstract base class for the AST nodes.");
-            writer.println(" * The `Expr` class serves as the base for various node types in the abstract syntax tree.");
-            writer.println(" * Each subclass represents a different kind of node in the AST, such as binary expressions,");
-            writer.println(" * groupings, literals, or unary expressions.");
+            writer.println(" * The `" + baseName + "` class serves as the base for various node types in the abstract syntax tree.");
+            writer.println(" * Each subclass represents a different kind of node in the AST, and has a visit method in");
+            writer.println(" * the nested `Visitor` interface.");
             writer.println(" * ");
             writer.println(" * This class is automatically generated by the GenerateAST utility and should not be modified.");
             writer.println(" */");
@@ -74,18 +108,89 @@ public class GenerateAST {
             // Define each subclass
             for (String type : types) {
                 String className = type.split(":")[0].trim();
-                String fields = type.split(":")[1].trim();
-                defineType(writer, baseName, className, fields);
+                String fields = fieldList(type);
+                defineType(writer, baseName, className, fields, annotationList(type));
             }
 
-            // Define the abstract accept method in the base class
+            // Define the owner and the abstract accept method in the base class
             writer.println();
+            if (owned) defineOwner(writer, baseName);
             writer.println("  public abstract <R> R accept(Visitor<R> visitor);");
 
             writer.println("}");
         }
     }
 
+    /**
+     * Generates a sealed interface with one record per node type, a visitor interface,
+     * and a static {@code dispatch} helper that picks the visit method by type.
+     *
+     * Switch patterns are only a preview feature in Java 17, so the helper tests each
+     * record type with an instanceof pattern instead. The set of types is closed, so at
+     * a call site that only ever sees a few of them the JIT reduces the chain to the
+     * same type-profile checks a switch would produce, and can inline the visit methods.
+     *
+     * @param outputDir The directory where the file will be generated.
+     * @param baseName  The name of the sealed interface (e.g., Expr).
+     * @param types     A list of type definitions in the format "ClassName: fields".
+     * @throws FileNotFoundException         If the file cannot be created.
+     * @throws UnsupportedEncodingException If UTF-8 encoding is not supported.
+     */
+    public static void defineSealedAST(String outputDir, String baseName, List<String> types)
+            throws FileNotFoundException, UnsupportedEncodingException {
+        String path = outputDir + "/" + baseName + ".java";
+        try (PrintWriter writer = new PrintWriter(path, "UTF-8")) {
+
+            // Package declaration and imports
+            writer.println("package crumble.sealed;");
+            writer.println();
+            writer.println("import crumble.scanner.TokenType;");
+            writer.println();
+
+            // Add the autogenerated docstring for the sealed interface
+            writer.println("/**");
+            writer.println(" * This is an autogenerated sealed interface for the AST nodes, with one record per");
+            writer.println(" * node type. Because the set of node types is closed, code can take nodes apart");
+            writer.println(" * with instanceof patterns instead of going through a visitor.");
+            writer.println(" * ");
+            writer.println(" * This interface is automatically generated by the GenerateAST utility (--sealed) and should not be modified.");
+            writer.println(" */");
+
+            StringBuilder permits = new StringBuilder();
+            for (String type : types) {
+                if (permits.length() > 0) permits.append(", ");
+                permits.append(baseName).append('.').append(type.split(":")[0].trim());
+            }
+            writer.println("public sealed interface " + baseName + " permits " + permits + " {");
+
+            // Define the visitor interface
+            defineVisitor(writer, baseName, types);
+
+            // Define each record
+            writer.println();
+            for (String type : types) {
+                String className = type.split(":")[0].trim();
+                String fields = fieldList(type);
+                writer.println("  record " + className + "(" + fields + ") implements " + baseName + " {}");
+            }
+
+            // Define the dispatch helper
+            writer.println();
+            writer.println("  static <R> R dispatch(" + baseName + " " + baseName.toLowerCase() +
+                    ", Visitor<R> visitor) {");
+            for (String type : types) {
+                String className = type.split(":")[0].trim();
+                String variable = Character.toLowerCase(className.charAt(0)) + className.substring(1);
+                writer.println("    if (" + baseName.toLowerCase() + " instanceof " + className + " " + variable +
+                        ") return visitor.visit" + className + baseName + "(" + variable + ");");
+            }
+            writer.println("    throw new IllegalStateException(\"Unknown node: \" + " + baseName.toLowerCase() + ");");
+            writer.println("  }");
+
+            writer.println("}");
+        }
+    }
+
     /**
      * Defines the Visitor interface inside the base class.
      *
@@ -113,10 +218,11 @@ public class GenerateAST {
      * @param baseName  The name of the base class (e.g., Expr).
      * @param className The name of the subclass.
      * @param fieldList The list of fields in the format "Type name".
+     * @param annotations The list of mutable fields in the format "Type name[ = value]".
      */
     public static void defineType(
             PrintWriter writer, String baseName,
-            String className, String fieldList) {
+            String className, String fieldList, String annotations) {
         writer.println("  public static class " + className + " extends " +
                 baseName + " {");
 
@@ -124,7 +230,7 @@ public class GenerateAST {
         writer.println("    public " + className + "(" + fieldList + ") {");
 
         // Initialize fields from constructor parameters
-        String[] fields = fieldList.split(", ");
+        String[] fields = fieldList.isEmpty() ? new String[0] : fieldList.split(", ");
         for (String field : fields) {
             String name = field.split(" ")[1];
             writer.println("      this." + name + " = " + name + ";");
@@ -139,11 +245,101 @@ public class GenerateAST {
         writer.println("    }");
 
         // Define fields
-        writer.println();
+        if (fields.length > 0) writer.println();
         for (String field : fields) {
             writer.println("    public final " + field + ";");
         }
+        if (!annotations.isEmpty()) defineAnnotations(writer, className, annotations);
+
+        writer.println("  }");
+    }
 
+    /**
+     * Defines the resolver a node belongs to in the base class, with methods to claim
+     * a node once and to check who claimed it.
+     *
+     * @param writer   The PrintWriter for writing to the file.
+     * @param baseName The name of the base class (e.g., Stmt).
+     */
+    private static void defineOwner(PrintWriter writer, String baseName) {
+        writer.println("  private Resolver resolvedBy;");
+        writer.println();
+        writer.println("  public void claim(Resolver resolver) {");
+        writer.println("    if (resolver == null) throw new NullPointerException(\"resolver\");");
+        writer.println("    if (resolvedBy != null) {");
+        writer.println("      throw new IllegalStateException(\"" + baseName + " has already been resolved.\");");
+        writer.println("    }");
+        writer.println("    resolvedBy = resolver;");
         writer.println("  }");
+        writer.println();
+        writer.println("  public boolean isResolvedBy(Resolver resolver) {");
+        writer.println("    return resolvedBy != null && resolvedBy == resolver;");
+        writer.println("  }");
+        writer.println();
+    }
+
+    /**
+     * Defines the annotations of a node type as private fields, a getter for each, and
+     * an {@code annotate} method that sets them all, once, for the resolver given.
+     *
+     * @param writer      The PrintWriter for writing to the file.
+     * @param className   The name of the node type.
+     * @param annotations The list of annotations in the format "Type name[ = value]".
+     */
+    private static void defineAnnotations(PrintWriter writer, String className, String annotations) {
+        String[] list = annotations.split(", ");
+        writer.println("    private Resolver annotatedBy;");
+        for (String annotation : list) {
+            writer.println("    private " + annotation + ";");
+        }
+
+        StringBuilder parameters = new StringBuilder("Resolver resolver");
+        for (String annotation : list) {
+            parameters.append(", ").append(annotation.split(" = ")[0]);
+        }
+        writer.println();
+        writer.println("    public void annotate(" + parameters + ") {");
+        writer.println("      if (resolver == null) throw new NullPointerException(\"resolver\");");
+        writer.println("      if (annotatedBy != null) {");
+        writer.println("        throw new IllegalStateException(\"" + className + " has already been resolved.\");");
+        writer.println("      }");
+        writer.println("      annotatedBy = resolver;");
+        for (String annotation : list) {
+            String name = annotation.split(" = ")[0].split(" ")[1];
+            writer.println("      this." + name + " = " + name + ";");
+        }
+        writer.println("    }");
+
+        for (String annotation : list) {
+            String[] declaration = annotation.split(" = ")[0].split(" ");
+            String name = declaration[1];
+            writer.println();
+            writer.println("    public " + declaration[0] + " get" + Character.toUpperCase(name.charAt(0)) +
+                    name.substring(1) + "() {");
+            writer.println("      return " + name + ";");
+            writer.println("    }");
+        }
+    }
+
+    /**
+     * Extracts the fields of a type definition, which may be empty (e.g. "NullLiteral : ").
+     *
+     * @param type A type definition in the format "ClassName: fields | annotations".
+     * @return The fields in the format "Type name, Type name", or an empty string.
+     */
+    private static String fieldList(String type) {
+        String[] parts = type.split(":", 2);
+        return parts.length > 1 ? parts[1].split("\\|", 2)[0].trim() : "";
+    }
+
+    /**
+     * Extracts the annotations of a type definition, the fields after its {@code |}.
+     *
+     * @param type A type definition in the format "ClassName: fields | annotations".
+     * @return The annotations in the format "Type name, Type name = value", or an empty string.
+     */
+    private static String annotationList(String type) {
+        String[] parts = type.split("\\|", 2);
+        return parts.length > 1 ? parts[1].trim() : "";
     }
 }